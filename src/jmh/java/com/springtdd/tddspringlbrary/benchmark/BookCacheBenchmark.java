@@ -0,0 +1,78 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import com.springtdd.tddspringlbrary.api.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Leituras por id e atualizacoes com e sem o cache de segundo nivel; readPercent e a fracao de leituras.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(8)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookCacheBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean secondLevelCache;
+
+    @Param({ "90", "99" })
+    public int readPercent;
+
+    private ConfigurableApplicationContext context;
+    private BookService service;
+    private List<Long> ids;
+    private final AtomicLong isbnSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void boot() {
+        context = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "library.cache.second-level.enabled=" + secondLevelCache,
+                        "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:cache;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+
+        BookRepository repository = context.getBean(BookRepository.class);
+        List<Book> books = new ArrayList<>(LibraryState.CATALOG_SIZE);
+        for (int i = 0; i < LibraryState.CATALOG_SIZE; i++) {
+            books.add(Book.builder().title("Title " + i).author("Author").isbn("cache-" + i).build());
+        }
+        ids = new ArrayList<>();
+        repository.saveAll(books).forEach(book -> ids.add(book.getId()));
+        service = context.getBean(BookService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object readMostly() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Long id = ids.get(random.nextInt(ids.size()));
+        Book book = service.getById(id).orElseThrow(IllegalStateException::new);
+        if (random.nextInt(100) < readPercent)
+            return book;
+        book.setIsbn("cache-updated-" + isbnSequence.incrementAndGet());
+        return service.update(book);
+    }
+
+}
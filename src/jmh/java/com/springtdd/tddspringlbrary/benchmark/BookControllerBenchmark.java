@@ -0,0 +1,62 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.api.resource.BookController;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookControllerBenchmark {
+
+    private BookController controller;
+    private BookRepository repository;
+    private PageRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        controller = library.bean(BookController.class);
+        repository = library.bean(BookRepository.class);
+        pageRequest = PageRequest.of(0, 20);
+    }
+
+    @Benchmark
+    public BookDTO create(LibraryState library) {
+        BookDTO dto = BookDTO.builder().title("Benchmark").author("Autor").isbn(library.nextIsbn()).build();
+        return controller.create(dto);
+    }
+
+    /**
+     * O cadastro de antes do indice unico ux_book_isbn: um exists por isbn antes do create.
+     */
+    @Benchmark
+    public BookDTO existsThenCreate(LibraryState library) {
+        BookDTO dto = BookDTO.builder().title("Benchmark").author("Autor").isbn(library.nextIsbn()).build();
+        if (repository.existsByIsbn(dto.getIsbn()))
+            return null;
+        return controller.create(dto);
+    }
+
+    @Benchmark
+    public BookDTO getBookById(LibraryState library) {
+        int index = ThreadLocalRandom.current().nextInt(library.catalog.size());
+        return controller.getBookById(library.catalog.get(index).getId(), null).getBody();
+    }
+
+    @Benchmark
+    public Page<BookDTO> filterBooks() {
+        // STARTING + ignoreCase: vira lower(title) like 'title 1%'
+        BookDTO filter = BookDTO.builder().title("title 1").build();
+        return controller.filterBooks(filter, pageRequest, null).getBody();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pagina de 100 livros: entidades gerenciadas via Example contra a projecao findPage.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookListingBenchmark {
+
+    private static final PageRequest PAGE = PageRequest.of(1, 100);
+
+    private BookRepository repository;
+    private BookMapper bookMapper;
+    private TransactionTemplate transaction;
+    private Example<Book> example;
+    private Book filter;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        repository = library.bean(BookRepository.class);
+        bookMapper = library.bean(BookMapper.class);
+        transaction = library.bean(TransactionTemplate.class);
+        filter = Book.builder().author("auth").build();
+        example = Example.of(filter, ExampleMatcher.matching()
+                .withIgnoreCase()
+                .withIgnoreNullValues()
+                .withStringMatcher(ExampleMatcher.StringMatcher.STARTING));
+    }
+
+    @Benchmark
+    public List<BookDTO> managedEntities() {
+        return transaction.execute(status -> {
+            Page<Book> page = repository.findAll(example, PAGE);
+            return bookMapper.toDtoList(page.getContent());
+        });
+    }
+
+    @Benchmark
+    public List<BookDTO> projection() {
+        return transaction.execute(status -> {
+            Page<Book> page = repository.findPage(filter, PAGE);
+            return bookMapper.toDtoList(page.getContent());
+        });
+    }
+
+}
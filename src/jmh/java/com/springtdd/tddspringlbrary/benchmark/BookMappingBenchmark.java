@@ -0,0 +1,66 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import org.mapstruct.factory.Mappers;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * ModelMapper (baseline antigo) contra o BookMapper gerado, por livro e por pagina.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookMappingBenchmark {
+
+    private static final int PAGE_SIZE = 1_000;
+
+    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private BookDTO dto;
+    private List<Book> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelMapper = new ModelMapper();
+        bookMapper = Mappers.getMapper(BookMapper.class);
+        dto = BookDTO.builder().id(1l).title("Titulo").author("Autor").isbn("123").build();
+        page = new ArrayList<>(PAGE_SIZE);
+        for (long i = 0; i < PAGE_SIZE; i++) {
+            page.add(Book.builder().id(i).title("Titulo " + i).author("Autor").isbn("isbn-" + i).build());
+        }
+    }
+
+    @Benchmark
+    public Book dtoToBookModelMapper() {
+        return modelMapper.map(dto, Book.class);
+    }
+
+    @Benchmark
+    public Book dtoToBookGenerated() {
+        return bookMapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public List<BookDTO> pageModelMapper() {
+        return page.stream()
+                .map(book -> modelMapper.map(book, BookDTO.class))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<BookDTO> pageGenerated() {
+        return bookMapper.toDtoList(page);
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.BookController;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.service.journal.ChangeJournal;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Custo do diario por escrita com journal off, group (force a cada 50ms) ou sync.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChangeJournalBenchmark {
+
+    @Param({ "off", "group", "sync" })
+    public String journal;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private BookController controller;
+    private ChangeJournal changeJournal;
+    private final AtomicLong isbnSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void boot() throws IOException {
+        directory = Files.createTempDirectory("journal-benchmark");
+        context = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                // properties() sao so defaults: application.properties desligaria o diario
+                .run("--library.journal.path=" + ("off".equals(journal) ? "" : directory.toString()),
+                        "--library.journal.flush-interval=" + ("sync".equals(journal) ? "0" : "50ms"));
+        controller = context.getBean(BookController.class);
+        changeJournal = context.getBean(ChangeJournal.class);
+        if (changeJournal.isEnabled() == "off".equals(journal))
+            throw new IllegalStateException("Change journal is not " + journal);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BookDTO create() {
+        BookDTO dto = BookDTO.builder().title("Benchmark").author("Autor").isbn("journal-" + isbnSequence.incrementAndGet()).build();
+        return controller.create(dto);
+    }
+
+    @Benchmark
+    public long append() {
+        long id = isbnSequence.incrementAndGet();
+        return changeJournal.bookSaved(Book.builder().id(id).title("Benchmark").author("Autor")
+                .isbn("journal-" + id).version(0l).build());
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.service.BookService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aplicacao inteira sem servidor web sobre H2 em memoria, com um catalogo base por trial.
+ */
+@State(Scope.Benchmark)
+public class LibraryState {
+
+    public static final int CATALOG_SIZE = 1_000;
+
+    public ConfigurableApplicationContext context;
+    public List<Book> catalog;
+
+    private final AtomicLong isbnSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void boot() {
+        context = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                .run();
+
+        // pelo service, para o IsbnIndex (carregado na subida) conhecer o catalogo
+        BookService service = context.getBean(BookService.class);
+        List<Book> books = new ArrayList<>(CATALOG_SIZE);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            books.add(Book.builder().title("Title " + i).author("Author " + (i % 50)).isbn(nextIsbn()).build());
+        }
+        catalog = service.importBooks(books);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public String nextIsbn() {
+        return "bench-" + isbnSequence.incrementAndGet();
+    }
+
+}
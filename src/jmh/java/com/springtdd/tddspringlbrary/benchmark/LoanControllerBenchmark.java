@@ -0,0 +1,105 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.api.resource.LoanController;
+import com.springtdd.tddspringlbrary.api.resource.dto.LoanDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.ReturnedLoanDTO;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import com.springtdd.tddspringlbrary.api.resource.service.index.LoanedBookIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cada iteracao empresta o catalogo inteiro uma vez, ja que um livro so tem um emprestimo ativo.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = LibraryState.CATALOG_SIZE)
+@Measurement(iterations = 10, batchSize = LibraryState.CATALOG_SIZE)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoanControllerBenchmark {
+
+    private LoanController controller;
+    private LoanRepository loanRepository;
+    private LoanedBookIndex loanedBookIndex;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(LibraryState library) {
+        controller = library.bean(LoanController.class);
+        loanRepository = library.bean(LoanRepository.class);
+        loanedBookIndex = library.bean(LoanedBookIndex.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLoans() {
+        loanRepository.deleteAllInBatch();
+        // sem recarregar, o bitmap manteria todo o catalogo emprestado e cada emprestimo consultaria o banco
+        loanedBookIndex.load();
+        next = 0;
+    }
+
+    @Benchmark
+    public Long makeALoan(LibraryState library) {
+        String isbn = library.catalog.get(next++).getIsbn();
+        LoanDTO dto = LoanDTO.builder().isbn(isbn).customer("Fulano").build();
+        return controller.makeALoan(dto);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2, batchSize = 1)
+    @Measurement(iterations = 5, time = 2, batchSize = 1)
+    @Threads(1)
+    public Long loanAndReturn(LibraryState library, CatalogSlice slice) {
+        return loanAndReturnNext(library, slice);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 3, time = 2, batchSize = 1)
+    @Measurement(iterations = 5, time = 2, batchSize = 1)
+    @Threads(Threads.MAX)
+    public Long loanAndReturnAllCores(LibraryState library, CatalogSlice slice) {
+        return loanAndReturnNext(library, slice);
+    }
+
+    private Long loanAndReturnNext(LibraryState library, CatalogSlice slice) {
+        String isbn = library.catalog.get(slice.next()).getIsbn();
+        Long id = controller.makeALoan(LoanDTO.builder().isbn(isbn).customer("Fulano").build());
+        controller.returnBook(id, ReturnedLoanDTO.builder().returned(true).build());
+        return id;
+    }
+
+    /**
+     * Livros de indice thread, thread + threads, ... : nenhuma outra thread empresta os mesmos.
+     */
+    @State(Scope.Thread)
+    public static class CatalogSlice {
+
+        private int first;
+        private int step;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            first = params.getThreadIndex();
+            step = params.getThreadCount();
+            next = first;
+        }
+
+        int next() {
+            int index = next;
+            next += step;
+            if (next >= LibraryState.CATALOG_SIZE)
+                next = first;
+            return index;
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leitura via HTTP na pilha MVC (JPA) e na WebFlux (R2DBC), com 256 clientes.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(256)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReactiveVsBlockingBenchmark {
+
+    @Param({ "blocking", "reactive" })
+    public String stack;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private List<URI> bookUris;
+    private URI filterUri;
+
+    @Setup(Level.Trial)
+    public void boot() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN");
+        if ("reactive".equals(stack))
+            application.profiles("reactive");
+        context = application.run();
+
+        String base = "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/api/books";
+        BookRepository repository = context.getBean(BookRepository.class);
+        bookUris = new ArrayList<>();
+        for (int i = 0; i < LibraryState.CATALOG_SIZE; i++) {
+            Book book = repository.save(Book.builder().title("Title " + i).author("Author").isbn("stack-" + i).build());
+            bookUris.add(URI.create(base + "/" + book.getId()));
+        }
+        filterUri = URI.create(base + "?author=auth&page=0&size=100");
+        client = HttpClient.newHttpClient();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getBookById() throws IOException, InterruptedException {
+        URI uri = bookUris.get(ThreadLocalRandom.current().nextInt(bookUris.size()));
+        return send(uri);
+    }
+
+    @Benchmark
+    public int filterBooks() throws IOException, InterruptedException {
+        return send(filterUri);
+    }
+
+    private int send(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).header("Accept", "application/json").GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
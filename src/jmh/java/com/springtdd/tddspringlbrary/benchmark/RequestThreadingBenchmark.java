@@ -0,0 +1,77 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/books/{id} com 1024 clientes: threads de plataforma contra virtual threads (JVM 21).
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(1024)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestThreadingBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean virtual;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private List<URI> bookUris;
+
+    @Setup(Level.Trial)
+    public void boot() {
+        context = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(
+                        "server.port=0",
+                        "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:threading;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN")
+                // properties() sao so defaults: application.properties desligaria o modo virtual
+                .run("--library.threads.virtual.enabled=" + virtual);
+        if (virtual && !context.containsBean("virtualThreadExecutor"))
+            throw new IllegalStateException("Virtual thread mode did not start");
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        BookRepository repository = context.getBean(BookRepository.class);
+        bookUris = new ArrayList<>();
+        for (int i = 0; i < LibraryState.CATALOG_SIZE; i++) {
+            Book book = repository.save(Book.builder().title("Title " + i).author("Author").isbn("threading-" + i).build());
+            bookUris.add(URI.create("http://localhost:" + port + "/api/books/" + book.getId()));
+        }
+        client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getBookById() throws IOException, InterruptedException {
+        URI uri = bookUris.get(ThreadLocalRandom.current().nextInt(bookUris.size()));
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+}
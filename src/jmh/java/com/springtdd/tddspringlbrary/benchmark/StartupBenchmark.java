@@ -0,0 +1,54 @@
+package com.springtdd.tddspringlbrary.benchmark;
+
+import com.springtdd.tddspringlbrary.TddSpringLbraryApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo ate a primeira resposta numa JVM nova, com e sem o profile fast-start.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    @Param({ "default", "fast-start" })
+    public String profile;
+
+    private ConfigurableApplicationContext context;
+
+    @Benchmark
+    public int timeToFirstRequest() throws IOException, InterruptedException {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(TddSpringLbraryApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.devtools.restart.enabled=false",
+                        "logging.level.root=WARN");
+        if (!"default".equals(profile))
+            application.profiles(profile);
+        context = application.run();
+
+        String port = context.getEnvironment().getProperty("local.server.port");
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?page=0&size=1"))
+                .GET()
+                .build();
+        return HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @TearDown(Level.Iteration)
+    public void shutdown() {
+        context.close();
+    }
+
+}
@@ -1,16 +1,24 @@
 package com.springtdd.tddspringlbrary;
 
-import org.modelmapper.ModelMapper;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.resource.mapper.LoanMapper;
+import org.mapstruct.factory.Mappers;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 
-@SpringBootApplication
+// sem proxies CGLIB nas classes de configuracao: nenhum @Bean chama outro diretamente
+@SpringBootApplication(proxyBeanMethods = false)
 public class TddSpringLbraryApplication {
 
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public BookMapper bookMapper() {
+		return Mappers.getMapper(BookMapper.class);
+	}
+
+	@Bean
+	public LoanMapper loanMapper() {
+		return Mappers.getMapper(LoanMapper.class);
 	}
 
 	public static void main(String[] args) {
@@ -9,6 +9,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.bind.support.WebExchangeBindException;
 import org.springframework.web.server.ResponseStatusException;
 
 @RestControllerAdvice
@@ -21,6 +22,12 @@ public class ApplicationControllerAdvice {
         return new ApiErrors(bindingResults);
     }
 
+    @ExceptionHandler(WebExchangeBindException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiErrors invalidBody(WebExchangeBindException e) {
+        return new ApiErrors(e.getBindingResult());
+    }
+
     @ExceptionHandler(BussinessException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ApiErrors duplicatedIsbn(BussinessException e) {
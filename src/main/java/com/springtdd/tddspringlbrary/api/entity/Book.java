@@ -4,6 +4,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 
@@ -12,11 +14,22 @@ import javax.persistence.*;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Book.CACHE_REGION)
+@Table(indexes = {
+        @Index(name = "ux_book_isbn", columnList = "isbn", unique = true),
+        @Index(name = "ix_book_title_id", columnList = "title, id")
+})
 public class Book {
 
+    // regioes do cache de segundo nivel, configuradas em application.conf
+    public static final String CACHE_REGION = "book";
+    public static final String QUERY_CACHE_REGION = "book-queries";
+
+    // sequence com pooled optimizer: ids reservados em blocos permitem insert em batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = 50)
     private Long id;
 
     @Column
@@ -28,4 +41,9 @@ public class Book {
     @Column
     private String isbn;
 
+    // incrementada a cada escrita; base dos ETags de BookController
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
 }
@@ -0,0 +1,34 @@
+package com.springtdd.tddspringlbrary.api.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Ultimo id processado por um job em lote; 0 indica que a ultima execucao terminou.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "job_checkpoint")
+public class JobCheckpoint {
+
+    @Id
+    private String name;
+
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+}
@@ -3,10 +3,11 @@ package com.springtdd.tddspringlbrary.api.entity;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
-import javax.persistence.Entity;
-import javax.persistence.Table;
+import javax.persistence.*;
 import java.time.LocalDate;
 
 @Data
@@ -14,13 +15,41 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        // emprestimo ativo por livro: respondido so pelo indice
+        @Index(name = "ix_loan_book_returned", columnList = "book_id, returned"),
+        @Index(name = "ix_loan_customer", columnList = "customer, loan_date"),
+        // varredura de atrasados por keyset sobre os nao devolvidos
+        @Index(name = "ix_loan_returned_id", columnList = "returned, id")
+})
 public class Loan {
 
-    private long id;
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_seq")
+    @SequenceGenerator(name = "loan_seq", sequenceName = "loan_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "customer")
     private String customer;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "book_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Book book;
+
+    @Column(name = "loan_date")
     private LocalDate loanDate;
+
+    @Column(name = "returned")
     private Boolean returned;
 
+    // book_id enquanto ativo, null depois da devolucao: o indice unico permite um emprestimo ativo por livro
+    @Column(name = "active_book_id", unique = true)
+    private Long activeBookId;
+
+    // marcado pelo OverdueLoanSweeper; null equivale a false
+    @Column(name = "overdue")
+    private Boolean overdue;
+
 }
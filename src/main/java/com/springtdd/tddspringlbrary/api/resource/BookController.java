@@ -1,78 +1,195 @@
 package com.springtdd.tddspringlbrary.api.resource;
 
 import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookCursorPageDTO;
 import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookCursor;
+import com.springtdd.tddspringlbrary.api.resource.service.feed.BookChangeFeed;
+import com.springtdd.tddspringlbrary.api.resource.service.transfer.BookExporter;
+import com.springtdd.tddspringlbrary.api.resource.service.transfer.BookImporter;
 import com.springtdd.tddspringlbrary.api.service.BookService;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/books")
+@Profile("!reactive")
 public class BookController {
 
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+    static final int MAX_PAGE_SIZE = 1000;
+
     private BookService service;
-    private ModelMapper modelMapper;
+    private BookChangeFeed changeFeed;
+    private BookImporter bookImporter;
+    private BookExporter bookExporter;
+    private BookMapper bookMapper;
+    private Duration changesTimeout;
 
-    public BookController(BookService service, ModelMapper modelMapper) {
+    public BookController(BookService service,
+                          BookChangeFeed changeFeed,
+                          BookImporter bookImporter,
+                          BookExporter bookExporter,
+                          BookMapper bookMapper,
+                          @Value("${library.changes.timeout:30m}") Duration changesTimeout) {
         this.service = service;
-        this.modelMapper = modelMapper;
+        this.changeFeed = changeFeed;
+        this.bookImporter = bookImporter;
+        this.bookExporter = bookExporter;
+        this.bookMapper = bookMapper;
+        this.changesTimeout = changesTimeout;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     public BookDTO create(@RequestBody @Valid BookDTO dto) {
-        Book entity = modelMapper.map(dto, Book.class);
+        Book entity = bookMapper.toEntity(dto);
         Book savedBook = service.save(entity);
-        BookDTO savedDTO = modelMapper.map(savedBook, BookDTO.class);
+        BookDTO savedDTO = bookMapper.toDto(savedBook);
         return savedDTO;
     }
 
     @GetMapping("{id}")
-    public BookDTO getBookById(@PathVariable Long id) {
-        return service.getById(id)
-                .map( book -> modelMapper.map(book, BookDTO.class) )
+    public ResponseEntity<BookDTO> getBookById(@PathVariable Long id,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // revalidacao: responde 304 so com a versao, sem carregar nem serializar o livro
+        if (ifNoneMatch != null) {
+            String eTag = service.getVersionById(id)
+                    .map(BookETags::of)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+            if (BookETags.matches(ifNoneMatch, eTag))
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        Book book = service.getById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        return ok(BookETags.of(book.getVersion())).body(bookMapper.toDto(book));
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void deleteById(@PathVariable Long id) {
-        Book book = service.getById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
-        service.delete(book);
+        if (!service.deleteById(id))
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
     }
 
     @PutMapping("{id}")
     public BookDTO udpateBook(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
-        return service.getById(id)
-                .map(book -> {
-                    book.setAuthor(dto.getAuthor());
-                    book.setTitle(dto.getTitle());
-                    book.setIsbn(dto.getIsbn());
-                    service.update(book);
-                    return modelMapper.map(book, BookDTO.class);
-                })
+        Book book = bookMapper.toEntity(dto);
+        book.setId(id);
+        return service.update(book)
+                .map(bookMapper::toDto)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
     }
 
     @GetMapping
-    public Page<BookDTO> filterBooks(BookDTO dto, Pageable pageRequest) {
-        Book filter = modelMapper.map(dto, Book.class);
+    public ResponseEntity<Page<BookDTO>> filterBooks(BookDTO dto, Pageable pageRequest,
+                                                     @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Book filter = bookMapper.toEntity(dto);
         Page<Book> result = service.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent()
-                .stream()
-                .map(entity -> modelMapper.map(entity, BookDTO.class))
-                .collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+        // disponibilidade vem do bitmap de emprestimos, sem join com loan na consulta da pagina
+        Set<Long> loanedIds = service.getLoanedIds(result.getContent().stream()
+                .map(Book::getId)
+                .collect(Collectors.toList()));
+        String eTag = BookETags.of(result, loanedIds);
+        if (BookETags.matches(ifNoneMatch, eTag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        List<BookDTO> list = bookMapper.toDtoList(result.getContent());
+        list.forEach(book -> book.setAvailable(!loanedIds.contains(book.getId())));
+        return ok(eTag).body(new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements()));
+    }
+
+    // ?cursor= vazio abre a primeira pagina; as seguintes usam o "next" da resposta
+    @GetMapping(params = "cursor")
+    public BookCursorPageDTO filterBooksAfter(BookDTO dto,
+                                              @RequestParam String cursor,
+                                              @RequestParam(defaultValue = BookCursor.ID) String sort,
+                                              @RequestParam(defaultValue = "20") int size) {
+        BookCursor position;
+        try {
+            position = BookCursor.decode(cursor, sort);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor or sort");
+        }
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+
+        // um registro a mais indica se existe proxima pagina
+        List<Book> books = service.findAfter(bookMapper.toEntity(dto), position, limit + 1);
+        String next = null;
+        if (books.size() > limit) {
+            books = books.subList(0, limit);
+            Book last = books.get(limit - 1);
+            next = BookCursor.after(position.getSortBy(), last.getId(), last.getTitle()).encode();
+        }
+        return BookCursorPageDTO.builder()
+                .content(bookMapper.toDtoList(books))
+                .next(next)
+                .build();
+    }
+
+    @GetMapping(value = "changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        SseEmitter emitter = new SseEmitter(changesTimeout.toMillis());
+        BookChangeFeed.Subscription subscription = changeFeed.subscribe(new SseBookChangeSink(emitter), lastEventId);
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+
+    @GetMapping("search")
+    public List<BookDTO> searchBooks(@RequestParam("q") String query,
+                                     @RequestParam(defaultValue = "20") int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return bookMapper.toDtoList(service.search(query, limit));
+    }
+
+    @GetMapping(value = "export", produces = { NDJSON, CSV })
+    public void exportBooks(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(csv ? CSV : NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        if (csv)
+            bookExporter.writeCsv(response.getOutputStream());
+        else
+            bookExporter.writeNdjson(response.getOutputStream());
+    }
+
+    @PostMapping(value = "batch", consumes = { MediaType.APPLICATION_JSON_VALUE, NDJSON }, produces = NDJSON)
+    public void importBooks(InputStream body,
+                            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                            HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON);
+        bookImporter.importBooks(body, contentType.startsWith(NDJSON), response.getOutputStream());
+    }
+
+    private static ResponseEntity.BodyBuilder ok(String eTag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        return eTag == null ? builder : builder.eTag(eTag);
     }
 
 }
@@ -0,0 +1,61 @@
+package com.springtdd.tddspringlbrary.api.resource;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import org.springframework.data.domain.Page;
+
+import java.util.Set;
+
+/**
+ * O ETag de um livro e a sua versao; o de uma pagina e um hash da paginacao e de (id, versao, emprestado).
+ */
+final class BookETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private BookETags() {
+    }
+
+    static String of(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    static String of(Page<Book> page, Set<Long> loanedIds) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, page.getNumber());
+        hash = mix(hash, page.getSize());
+        hash = mix(hash, page.getTotalElements());
+        hash = mix(hash, page.getSort().hashCode());
+        for (Book book : page.getContent()) {
+            hash = mix(hash, book.getId() == null ? -1 : book.getId());
+            hash = mix(hash, book.getVersion() == null ? -1 : book.getVersion());
+            hash = mix(hash, loanedIds.contains(book.getId()) ? 1 : 0);
+        }
+        return "\"p" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * If-None-Match usa comparacao fraca: aceita "*", listas e o prefixo W/.
+     */
+    static boolean matches(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null)
+            return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/"))
+                value = value.substring(2);
+            if (value.equals("*") || value.equals(eTag))
+                return true;
+        }
+        return false;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+}
@@ -3,39 +3,67 @@ package com.springtdd.tddspringlbrary.api.resource;
 import com.springtdd.tddspringlbrary.api.entity.Book;
 import com.springtdd.tddspringlbrary.api.entity.Loan;
 import com.springtdd.tddspringlbrary.api.resource.dto.LoanDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.LoanReturnBatchDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.LoanReturnResultDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.ReturnedLoanDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.LoanMapper;
 import com.springtdd.tddspringlbrary.api.service.BookService;
+import com.springtdd.tddspringlbrary.api.service.LoanReturnStatus;
 import com.springtdd.tddspringlbrary.api.service.LoanService;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.validation.Valid;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/loans")
+@Profile("!reactive")
 @RequiredArgsConstructor
 public class LoanController {
 
     private final BookService bookService;
     private final LoanService loanService;
+    private final LoanMapper loanMapper;
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
+    @Timed(value = "library.loan.make", histogram = true)
     public Long makeALoan(@RequestBody LoanDTO dto) {
         Book book = bookService.getBookByIsbn(dto.getIsbn())
                 .orElseThrow( () -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
 
-        Loan savedOne = loanService.save(
-                Loan.builder()
-                        .id(1l)
-                        .customer("Fulano")
-                        .loanDate(LocalDate.now())
-                        .book(book)
-                        .build()
-        );
+        Loan loan = loanMapper.toEntity(dto);
+        loan.setBook(book);
+        loan.setLoanDate(LocalDate.now());
+        loan.setReturned(false);
+        Loan savedOne = loanService.save(loan);
 
         return savedOne.getId();
     }
 
+    @PatchMapping("{id}")
+    public void returnBook(@PathVariable Long id, @RequestBody ReturnedLoanDTO dto) {
+        if (!Boolean.TRUE.equals(dto.getReturned()))
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Only returned=true is supported");
+        if (loanService.returnLoan(id) == LoanReturnStatus.NOT_FOUND)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND);
+    }
+
+    /**
+     * Devolucao em lote (fechamento do balcao): um resultado por id, na ordem recebida.
+     */
+    @PostMapping("returns")
+    public List<LoanReturnResultDTO> returnBooks(@RequestBody @Valid LoanReturnBatchDTO dto) {
+        return loanService.returnLoans(dto.getLoanIds()).entrySet().stream()
+                .map(result -> LoanReturnResultDTO.builder().id(result.getKey()).status(result.getValue()).build())
+                .collect(Collectors.toList());
+    }
+
 }
@@ -0,0 +1,77 @@
+package com.springtdd.tddspringlbrary.api.resource;
+
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.service.ReactiveBookService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * Endpoints do BookController em WebFlux, ativos so no profile reactive.
+ */
+@RestController
+@RequestMapping("/api/books")
+@Profile("reactive")
+public class ReactiveBookController {
+
+    static final int MAX_PAGE_SIZE = 1000;
+
+    private ReactiveBookService service;
+    private BookMapper bookMapper;
+
+    public ReactiveBookController(ReactiveBookService service, BookMapper bookMapper) {
+        this.service = service;
+        this.bookMapper = bookMapper;
+    }
+
+    @PostMapping
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<BookDTO> create(@RequestBody @Valid BookDTO dto) {
+        return service.save(bookMapper.toEntity(dto))
+                .map(bookMapper::toDto);
+    }
+
+    @GetMapping("{id}")
+    public Mono<BookDTO> getBookById(@PathVariable Long id) {
+        return service.getById(id)
+                .map(bookMapper::toDto)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    @DeleteMapping("{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public Mono<Void> deleteById(@PathVariable Long id) {
+        return service.deleteById(id)
+                .filter(Boolean::booleanValue)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)))
+                .then();
+    }
+
+    @PutMapping("{id}")
+    public Mono<BookDTO> udpateBook(@PathVariable Long id, @RequestBody @Valid BookDTO dto) {
+        dto.setId(id);
+        return service.update(bookMapper.toEntity(dto))
+                .map(bookMapper::toDto)
+                .switchIfEmpty(Mono.error(() -> new ResponseStatusException(HttpStatus.NOT_FOUND)));
+    }
+
+    /**
+     * Emite os livros conforme a demanda do cliente, sem COUNT.
+     */
+    @GetMapping(produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public Flux<BookDTO> filterBooks(BookDTO dto,
+                                     @RequestParam(defaultValue = "0") int page,
+                                     @RequestParam(defaultValue = "20") int size) {
+        int limit = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        return service.find(bookMapper.toEntity(dto), (long) Math.max(0, page) * limit, limit)
+                .map(bookMapper::toDto);
+    }
+
+}
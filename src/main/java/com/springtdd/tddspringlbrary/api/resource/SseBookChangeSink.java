@@ -0,0 +1,44 @@
+package com.springtdd.tddspringlbrary.api.resource;
+
+import com.springtdd.tddspringlbrary.api.resource.dto.BookChangeDTO;
+import com.springtdd.tddspringlbrary.api.resource.service.feed.BookChangeSink;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+
+final class SseBookChangeSink implements BookChangeSink {
+
+    static final String RESET = "reset";
+
+    private final SseEmitter emitter;
+
+    SseBookChangeSink(SseEmitter emitter) {
+        this.emitter = emitter;
+    }
+
+    @Override
+    public void send(String eventId, BookChangeDTO change) throws IOException {
+        emitter.send(SseEmitter.event().id(eventId).data(change, MediaType.APPLICATION_JSON));
+    }
+
+    @Override
+    public void reset(String eventId, long sequence) throws IOException {
+        emitter.send(SseEmitter.event().name(RESET).id(eventId).data(sequence));
+    }
+
+    @Override
+    public void heartbeat() throws IOException {
+        emitter.send(SseEmitter.event().comment("heartbeat"));
+    }
+
+    @Override
+    public void close() {
+        try {
+            emitter.complete();
+        } catch (IllegalStateException e) {
+            // a requisicao assincrona ja terminou
+        }
+    }
+
+}
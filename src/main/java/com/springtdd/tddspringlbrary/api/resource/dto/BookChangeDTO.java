@@ -0,0 +1,23 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookChangeDTO {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private long sequence;
+    private Type type;
+    private Long id;
+    private String title;
+    private String author;
+    private String isbn;
+
+}
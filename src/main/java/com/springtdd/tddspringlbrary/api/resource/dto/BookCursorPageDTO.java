@@ -0,0 +1,20 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookCursorPageDTO {
+
+    private List<BookDTO> content;
+    // null quando nao ha proxima pagina
+    private String next;
+
+}
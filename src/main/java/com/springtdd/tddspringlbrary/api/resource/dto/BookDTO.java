@@ -1,5 +1,7 @@
 package com.springtdd.tddspringlbrary.api.resource.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
 import javax.validation.constraints.NotEmpty;
@@ -19,4 +21,9 @@ public class BookDTO {
     @NotEmpty
     private String isbn;
 
+    // somente leitura: preenchido apenas na listagem paginada
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Boolean available;
+
 }
@@ -0,0 +1,24 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportResultDTO {
+
+    public enum Status { CREATED, DUPLICATED, INVALID, FAILED }
+
+    private long index;
+    private String isbn;
+    private Long id;
+    private Status status;
+    private List<String> erros;
+
+}
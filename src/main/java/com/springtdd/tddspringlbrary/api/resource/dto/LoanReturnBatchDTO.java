@@ -0,0 +1,22 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnBatchDTO {
+
+    @NotEmpty
+    @Size(max = 10_000)
+    private List<Long> loanIds;
+
+}
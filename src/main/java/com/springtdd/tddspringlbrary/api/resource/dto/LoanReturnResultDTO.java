@@ -0,0 +1,18 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import com.springtdd.tddspringlbrary.api.service.LoanReturnStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnResultDTO {
+
+    private Long id;
+    private LoanReturnStatus status;
+
+}
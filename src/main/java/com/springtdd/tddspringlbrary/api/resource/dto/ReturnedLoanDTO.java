@@ -0,0 +1,16 @@
+package com.springtdd.tddspringlbrary.api.resource.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReturnedLoanDTO {
+
+    private Boolean returned;
+
+}
@@ -0,0 +1,19 @@
+package com.springtdd.tddspringlbrary.api.resource.mapper;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.ReportingPolicy;
+
+import java.util.List;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface BookMapper {
+
+    BookDTO toDto(Book book);
+
+    Book toEntity(BookDTO dto);
+
+    List<BookDTO> toDtoList(List<Book> books);
+
+}
@@ -0,0 +1,20 @@
+package com.springtdd.tddspringlbrary.api.resource.mapper;
+
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import com.springtdd.tddspringlbrary.api.resource.dto.LoanDTO;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+
+@Mapper(unmappedTargetPolicy = ReportingPolicy.IGNORE)
+public interface LoanMapper {
+
+    @Mapping(target = "isbn", source = "book.isbn")
+    LoanDTO toDto(Loan loan);
+
+    // o livro e resolvido pelo isbn no controller
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "book", ignore = true)
+    Loan toEntity(LoanDTO dto);
+
+}
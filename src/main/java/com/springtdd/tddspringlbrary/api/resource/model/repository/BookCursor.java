@@ -0,0 +1,57 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posicao de uma paginacao por keyset, trafegada como token base64 opaco.
+ */
+@Data
+@AllArgsConstructor
+public class BookCursor {
+
+    public static final String ID = "id";
+    public static final String TITLE = "title";
+
+    private String sortBy;
+    private Long lastId;
+    private String lastValue;
+
+    public static BookCursor first(String sortBy) {
+        if (!ID.equals(sortBy) && !TITLE.equals(sortBy))
+            throw new IllegalArgumentException("Unsupported sort: " + sortBy);
+        return new BookCursor(sortBy, null, null);
+    }
+
+    public static BookCursor after(String sortBy, Long lastId, String lastValue) {
+        BookCursor cursor = first(sortBy);
+        cursor.setLastId(lastId);
+        cursor.setLastValue(TITLE.equals(sortBy) ? lastValue : null);
+        return cursor;
+    }
+
+    /**
+     * Token vazio abre a primeira pagina ordenada por sortBy.
+     */
+    public static BookCursor decode(String token, String sortBy) {
+        if (token == null || token.isEmpty())
+            return first(sortBy);
+        String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 3);
+        if (parts.length != 3)
+            throw new IllegalArgumentException("Malformed cursor");
+        return after(parts[0], Long.valueOf(parts[1]), parts[2]);
+    }
+
+    public String encode() {
+        String raw = sortBy + "\n" + lastId + "\n" + (lastValue == null ? "" : lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookRepositoryCustom {
+
+    /**
+     * Ate limit livros depois do cursor, sem OFFSET e sem COUNT.
+     */
+    List<Book> findAfter(Book filter, BookCursor cursor, int limit);
+
+    /**
+     * Projecao nao gerenciada pelo EntityManager: sem snapshot nem dirty checking.
+     */
+    Page<Book> findPage(Book filter, Pageable pageable);
+
+    /**
+     * Cada livro e desanexado ao ser consumido; use dentro de uma transacao e feche o stream.
+     */
+    Stream<Book> streamAll();
+
+}
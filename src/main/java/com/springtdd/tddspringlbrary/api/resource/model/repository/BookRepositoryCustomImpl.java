@@ -0,0 +1,124 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${library.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Override
+    public List<Book> findAfter(Book filter, BookCursor cursor, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> book = query.from(Book.class);
+
+        List<Predicate> predicates = filters(cb, book, filter);
+
+        Path<Long> id = book.get("id");
+        if (BookCursor.TITLE.equals(cursor.getSortBy())) {
+            Path<String> title = book.get("title");
+            if (!cursor.isFirst()) {
+                predicates.add(cb.or(
+                        cb.greaterThan(title, cursor.getLastValue()),
+                        cb.and(cb.equal(title, cursor.getLastValue()), cb.greaterThan(id, cursor.getLastId()))));
+            }
+            query.orderBy(cb.asc(title), cb.asc(id));
+        } else {
+            if (!cursor.isFirst())
+                predicates.add(cb.greaterThan(id, cursor.getLastId()));
+            query.orderBy(cb.asc(id));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public Page<Book> findPage(Book filter, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> book = query.from(Book.class);
+        // expressao de construtor: os livros nao passam pelo contexto de persistencia
+        query.select(cb.construct(Book.class,
+                        book.get("id"), book.get("title"), book.get("author"), book.get("isbn"), book.get("version")))
+                .where(filters(cb, book, filter).toArray(new Predicate[0]))
+                .orderBy(pageable.getSort().isSorted()
+                        ? QueryUtils.toOrders(pageable.getSort(), book, cb)
+                        : Collections.singletonList(cb.asc(book.get("id"))));
+
+        TypedQuery<Book> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset());
+            typedQuery.setMaxResults(pageable.getPageSize());
+        }
+        List<Book> content = typedQuery.getResultList();
+        // o COUNT so roda quando a pagina nao basta para deduzir o total
+        return PageableExecutionUtils.getPage(content, pageable, () -> count(filter));
+    }
+
+    @Override
+    public Stream<Book> streamAll() {
+        return entityManager.createQuery("select b from Book b order by b.id", Book.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, exportFetchSize)
+                .setHint(QueryHints.HINT_READONLY, true)
+                // varredura completa nao deve expulsar os livros quentes do cache de segundo nivel
+                .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream()
+                .peek(entityManager::detach);
+    }
+
+    private long count(Book filter) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> book = query.from(Book.class);
+        query.select(cb.count(book)).where(filters(cb, book, filter).toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private List<Predicate> filters(CriteriaBuilder cb, Root<Book> book, Book filter) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (filter.getId() != null)
+            predicates.add(cb.equal(book.get("id"), filter.getId()));
+        startsWithIgnoreCase(cb, book.get("title"), filter.getTitle(), predicates);
+        startsWithIgnoreCase(cb, book.get("author"), filter.getAuthor(), predicates);
+        startsWithIgnoreCase(cb, book.get("isbn"), filter.getIsbn(), predicates);
+        return predicates;
+    }
+
+    private void startsWithIgnoreCase(CriteriaBuilder cb, Path<String> path, String value, List<Predicate> predicates) {
+        if (value == null)
+            return;
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        predicates.add(cb.like(cb.lower(path), escaped + "%", '\\'));
+    }
+
+}
@@ -0,0 +1,7 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.JobCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+}
@@ -0,0 +1,51 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface LoanRepository extends JpaRepository<Loan, Long> {
+
+    // usa apenas ix_loan_book_returned, sem carregar entidades
+    boolean existsByBookIdAndReturnedFalse(Long bookId);
+
+    Page<Loan> findByCustomer(String customer, Pageable pageable);
+
+    // keyset sobre ix_loan_returned_id: so ids, o limite vem do Pageable e nao ha COUNT
+    @Query("select l.id from Loan l where l.returned = false and l.id > :afterId and l.loanDate < :dueBefore order by l.id")
+    List<Long> findUnreturnedIdsAfter(@Param("afterId") Long afterId,
+                                      @Param("dueBefore") LocalDate dueBefore,
+                                      Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update Loan l set l.overdue = true " +
+            "where l.id in :ids and l.returned = false and (l.overdue is null or l.overdue = false)")
+    int markOverdue(@Param("ids") Collection<Long> ids);
+
+    // l.book.id le a coluna book_id, sem join com book
+    @Query("select l.book.id from Loan l where l.returned = false")
+    Stream<Long> streamLoanedBookIds();
+
+    @Query("select l.book.id from Loan l where l.returned = false and l.book.id in :bookIds")
+    List<Long> findLoanedBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("select l.id as id, l.book.id as bookId, l.returned as returned from Loan l where l.id in :ids")
+    List<LoanReturnState> findReturnStates(@Param("ids") Collection<Long> ids);
+
+    // devolucao libera active_book_id, permitindo um novo emprestimo do livro
+    @Modifying
+    @Transactional
+    @Query("update Loan l set l.returned = true, l.activeBookId = null where l.id in :ids and l.returned = false")
+    int markReturned(@Param("ids") Collection<Long> ids);
+}
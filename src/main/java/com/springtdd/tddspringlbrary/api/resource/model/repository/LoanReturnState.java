@@ -0,0 +1,14 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+/**
+ * Projecao (id, bookId, returned) usada para classificar uma devolucao em lote sem carregar emprestimos.
+ */
+public interface LoanReturnState {
+
+    Long getId();
+
+    Long getBookId();
+
+    Boolean getReturned();
+
+}
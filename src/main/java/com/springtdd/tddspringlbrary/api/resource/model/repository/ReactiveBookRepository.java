@@ -0,0 +1,99 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Os ids vem da mesma book_seq do JPA, sem colidir com os blocos do pooled optimizer.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveBookRepository {
+
+    private static final String COLUMNS = "select id, title, author, isbn, version from book";
+
+    private final DatabaseClient client;
+
+    public ReactiveBookRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    public Mono<Book> findById(Long id) {
+        return client.sql(COLUMNS + " where id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toBook(row))
+                .one();
+    }
+
+    public Mono<Book> insert(Book book) {
+        return client.sql("select next value for book_seq")
+                .map((row, metadata) -> row.get(0, Long.class))
+                .one()
+                .flatMap(id -> client.sql("insert into book (id, title, author, isbn, version) values (:id, :title, :author, :isbn, 0)")
+                        .bind("id", id)
+                        .bind("title", book.getTitle())
+                        .bind("author", book.getAuthor())
+                        .bind("isbn", book.getIsbn())
+                        .fetch()
+                        .rowsUpdated()
+                        .thenReturn(Book.builder().id(id).title(book.getTitle()).author(book.getAuthor()).isbn(book.getIsbn()).version(0l).build()));
+    }
+
+    public Mono<Integer> update(Book book) {
+        return client.sql("update book set title = :title, author = :author, isbn = :isbn, version = version + 1 where id = :id")
+                .bind("title", book.getTitle())
+                .bind("author", book.getAuthor())
+                .bind("isbn", book.getIsbn())
+                .bind("id", book.getId())
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Mono<Integer> deleteById(Long id) {
+        return client.sql("delete from book where id = :id")
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    public Flux<Book> find(Book filter, long offset, int limit) {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        if (filter.getTitle() != null) prefixes.put("title", filter.getTitle());
+        if (filter.getAuthor() != null) prefixes.put("author", filter.getAuthor());
+        if (filter.getIsbn() != null) prefixes.put("isbn", filter.getIsbn());
+
+        StringBuilder sql = new StringBuilder(COLUMNS).append(" where 1 = 1");
+        prefixes.keySet().forEach(column -> sql.append(" and lower(").append(column).append(") like :").append(column).append(" escape '\\'"));
+        sql.append(" order by id limit :limit offset :offset");
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql.toString())
+                .bind("limit", limit)
+                .bind("offset", offset);
+        for (Map.Entry<String, String> prefix : prefixes.entrySet())
+            spec = spec.bind(prefix.getKey(), escapeLike(prefix.getValue().toLowerCase()) + "%");
+        return spec.map((row, metadata) -> toBook(row)).all();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Book toBook(Row row) {
+        return Book.builder()
+                .id(row.get("id", Long.class))
+                .title(row.get("title", String.class))
+                .author(row.get("author", String.class))
+                .isbn(row.get("isbn", String.class))
+                .version(row.get("version", Long.class))
+                .build();
+    }
+
+}
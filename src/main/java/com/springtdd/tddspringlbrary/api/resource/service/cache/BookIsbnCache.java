@@ -0,0 +1,85 @@
+package com.springtdd.tddspringlbrary.api.resource.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache read-through isbn -> livro; o mapa id -> isbn permite invalidar por id.
+ */
+@Component
+public class BookIsbnCache implements MeterBinder {
+
+    public static final String NAME = "booksByIsbn";
+
+    private final Cache<String, Book> cache;
+    private final ConcurrentMap<Long, String> isbnById = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BookIsbnCache(@Value("${library.cache.books-by-isbn.maximum-size:10000}") long maximumSize,
+                         @Value("${library.cache.books-by-isbn.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                // notificacao na propria thread: o mapa id -> isbn sai junto com a entrada
+                .executor(Runnable::run)
+                .removalListener((String isbn, Book book, RemovalCause cause) -> {
+                    if (book != null)
+                        isbnById.remove(book.getId(), isbn);
+                })
+                .build();
+    }
+
+    public Optional<Book> get(String isbn, Function<String, Optional<Book>> loader) {
+        long stamp = evictions.get();
+        Book book = cache.get(isbn, key -> {
+            Book loaded = loader.apply(key).orElse(null);
+            if (loaded != null)
+                isbnById.put(loaded.getId(), key);
+            return loaded;
+        });
+        // um evict durante a carga pode nao ter achado o id -> isbn: a entrada carregada pode estar velha
+        if (book != null && evictions.get() != stamp)
+            cache.invalidate(isbn);
+        return Optional.ofNullable(book);
+    }
+
+    /**
+     * O isbn pode ter mudado antes da chamada, entao remove pelos dois.
+     */
+    public void evict(Book book) {
+        evictions.incrementAndGet();
+        if (book.getIsbn() != null)
+            cache.invalidate(book.getIsbn());
+        if (book.getId() != null) {
+            String cachedIsbn = isbnById.get(book.getId());
+            if (cachedIsbn != null)
+                cache.invalidate(cachedIsbn);
+        }
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, NAME);
+    }
+
+}
@@ -0,0 +1,313 @@
+package com.springtdd.tddspringlbrary.api.resource.service.feed;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookChangeDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Feed das alteracoes do catalogo; o Last-Event-ID retoma do historico ou recebe um reset.
+ */
+@Component
+public class BookChangeFeed {
+
+    private static final BookChangeDTO HEARTBEAT = new BookChangeDTO();
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final BookChangeDTO[] history;
+    private final int bufferSize;
+    private final long sendTimeoutNanos;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // assinantes com um envio em andamento, inclusive os ja desconectados por estouro do buffer
+    private final Set<Subscriber> inFlight = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor dispatcher;
+    private final ScheduledExecutorService scheduler;
+    private final Counter evicted;
+    private long sequence;
+
+    public BookChangeFeed(MeterRegistry registry,
+                          @Value("${library.changes.history-size:10000}") int historySize,
+                          @Value("${library.changes.buffer-size:256}") int bufferSize,
+                          @Value("${library.changes.heartbeat:15s}") Duration heartbeatInterval,
+                          @Value("${library.changes.send-timeout:10s}") Duration sendTimeout,
+                          @Value("${library.changes.dispatch-threads:#{2 * T(java.lang.Runtime).getRuntime().availableProcessors()}}") int dispatchThreads) {
+        this.history = new BookChangeDTO[historySize];
+        this.bufferSize = bufferSize;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        // cada assinante tem no maximo uma tarefa na fila (flag draining)
+        this.dispatcher = new ThreadPoolExecutor(dispatchThreads, dispatchThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemon("book-changes-"));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon("book-changes-watchdog-"));
+        long heartbeatMillis = heartbeatInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long checkMillis = Math.max(1, sendTimeout.toMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::evictStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("library.book.changes.subscribers", subscribers, Set::size)
+                .description("Assinantes conectados ao feed de alteracoes")
+                .register(registry);
+        this.evicted = Counter.builder("library.book.changes.evicted")
+                .description("Assinantes desconectados por nao acompanhar o feed")
+                .register(registry);
+    }
+
+    public void bookSaved(Book book) {
+        publish(BookChangeDTO.Type.CREATED, book);
+    }
+
+    public void bookUpdated(Book book) {
+        publish(BookChangeDTO.Type.UPDATED, book);
+    }
+
+    public void bookDeleted(Long id) {
+        publish(BookChangeDTO.Type.DELETED, Book.builder().id(id).build());
+    }
+
+    /**
+     * Nada e enviado nesta thread: o reset e os eventos perdidos vao pelo dispatcher.
+     */
+    public synchronized Subscription subscribe(BookChangeSink sink, String lastEventId) {
+        Subscriber subscriber = new Subscriber(sink);
+        if (lastEventId != null) {
+            long last = parseSequence(lastEventId);
+            long oldest = Math.max(1, sequence - history.length + 1);
+            if (last < 0 || last > sequence || last + 1 < oldest || sequence - last > bufferSize) {
+                subscriber.resetTo = sequence;
+            } else {
+                for (long missed = last + 1; missed <= sequence; missed++)
+                    subscriber.queue.offer(history[slot(missed)]);
+            }
+            subscriber.schedule();
+        }
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    int dispatchThreads() {
+        return dispatcher.getLargestPoolSize();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        dispatcher.shutdownNow();
+        subscribers.forEach(Subscriber::finish);
+        subscribers.clear();
+    }
+
+    /**
+     * Dentro de uma transacao o evento so e publicado depois do commit.
+     */
+    private void publish(BookChangeDTO.Type type, Book book) {
+        BookChangeDTO change = BookChangeDTO.builder()
+                .type(type)
+                .id(book.getId())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .build();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(change);
+                }
+            });
+        } else {
+            append(change);
+        }
+    }
+
+    private synchronized void append(BookChangeDTO change) {
+        change.setSequence(++sequence);
+        history[slot(sequence)] = change;
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(change);
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers)
+            subscriber.heartbeat();
+    }
+
+    private void evictStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : inFlight)
+            subscriber.evictIfStalled(now);
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % history.length);
+    }
+
+    private String eventId(long sequence) {
+        return runId + "." + sequence;
+    }
+
+    /**
+     * Sequencia do Last-Event-ID, ou -1 quando ele nao e desta execucao.
+     */
+    private long parseSequence(String lastEventId) {
+        int dot = lastEventId.indexOf('.');
+        if (dot < 0 || !lastEventId.substring(0, dot).equals(runId))
+            return -1;
+        try {
+            return Long.parseLong(lastEventId.substring(dot + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Cancela a inscricao quando a conexao termina (cliente saiu, timeout ou erro).
+     */
+    public interface Subscription {
+
+        void cancel();
+
+    }
+
+    private final class Subscriber implements Subscription {
+
+        private final BookChangeSink sink;
+        private final Queue<BookChangeDTO> queue = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile long resetTo = -1;
+        // envio em andamento: guardados pelo monitor do assinante
+        private long sendingSince;
+        private Thread sendingThread;
+
+        Subscriber(BookChangeSink sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Chamado com o lock do feed: nunca escreve na conexao, so enfileira.
+         */
+        void offer(BookChangeDTO change) {
+            if (closed)
+                return;
+            if (!queue.offer(change))
+                evict();
+            schedule();
+        }
+
+        void heartbeat() {
+            if (!closed && queue.isEmpty() && queue.offer(HEARTBEAT))
+                schedule();
+        }
+
+        void schedule() {
+            if (draining.compareAndSet(false, true))
+                dispatcher.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            closed = true;
+            finished.set(true);
+            subscribers.remove(this);
+        }
+
+        synchronized void evictIfStalled(long now) {
+            if (sendingThread != null && now - sendingSince > sendTimeoutNanos) {
+                evict();
+                sendingThread.interrupt();
+            }
+        }
+
+        private void evict() {
+            if (closed)
+                return;
+            closed = true;
+            subscribers.remove(this);
+            evicted.increment();
+        }
+
+        private void drain() {
+            try {
+                long reset = resetTo;
+                if (reset >= 0) {
+                    resetTo = -1;
+                    sending(true);
+                    sink.reset(eventId(reset), reset);
+                }
+                BookChangeDTO change;
+                while (!closed && (change = queue.poll()) != null) {
+                    sending(true);
+                    if (change == HEARTBEAT)
+                        sink.heartbeat();
+                    else
+                        sink.send(eventId(change.getSequence()), change);
+                }
+            } catch (IOException | RuntimeException e) {
+                // conexao fechada pelo cliente ou envio interrompido pelo watchdog
+                closed = true;
+            } finally {
+                sending(false);
+                // uma interrupcao do watchdog nao pode vazar para o proximo assinante desta thread
+                Thread.interrupted();
+                draining.set(false);
+                if (closed)
+                    finish();
+                else if (!queue.isEmpty())
+                    schedule();
+            }
+        }
+
+        private synchronized void sending(boolean active) {
+            sendingSince = active ? System.nanoTime() : 0;
+            sendingThread = active ? Thread.currentThread() : null;
+            if (active)
+                inFlight.add(this);
+            else
+                inFlight.remove(this);
+        }
+
+        private void finish() {
+            if (!finished.compareAndSet(false, true))
+                return;
+            subscribers.remove(this);
+            queue.clear();
+            sink.close();
+        }
+
+    }
+
+}
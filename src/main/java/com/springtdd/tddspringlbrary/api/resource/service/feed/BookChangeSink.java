@@ -0,0 +1,26 @@
+package com.springtdd.tddspringlbrary.api.resource.service.feed;
+
+import com.springtdd.tddspringlbrary.api.resource.dto.BookChangeDTO;
+
+import java.io.IOException;
+
+/**
+ * Envios chegam um por vez; um envio travado e interrompido apos library.changes.send-timeout.
+ */
+public interface BookChangeSink {
+
+    void send(String eventId, BookChangeDTO change) throws IOException;
+
+    /**
+     * O historico nao cobre o Last-Event-ID: o assinante deve recarregar a listagem.
+     */
+    void reset(String eventId, long sequence) throws IOException;
+
+    void heartbeat() throws IOException;
+
+    /**
+     * Encerra a conexao; chamado uma unica vez, quando o feed desiste do assinante.
+     */
+    void close();
+
+}
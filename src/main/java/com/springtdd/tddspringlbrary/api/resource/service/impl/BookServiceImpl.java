@@ -1,31 +1,83 @@
 package com.springtdd.tddspringlbrary.api.resource.service.impl;
 
 import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookCursor;
 import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import com.springtdd.tddspringlbrary.api.resource.service.cache.BookIsbnCache;
+import com.springtdd.tddspringlbrary.api.resource.service.feed.BookChangeFeed;
+import com.springtdd.tddspringlbrary.api.resource.service.index.BookSearchIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.index.IsbnIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.index.LoanedBookIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.journal.ChangeJournal;
 import com.springtdd.tddspringlbrary.api.service.BookService;
 import com.springtdd.tddspringlbrary.exceptions.BussinessException;
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
+import com.springtdd.tddspringlbrary.metrics.BookMetrics;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class BookServiceImpl implements BookService {
 
     private BookRepository repository;
+    private IsbnIndex isbnIndex;
+    private BookIsbnCache bookIsbnCache;
+    private BookSearchIndex searchIndex;
+    private LoanedBookIndex loanedBooks;
+    private ChangeJournal journal;
+    private BookChangeFeed changeFeed;
+    private BookMetrics metrics;
 
-    public BookServiceImpl(BookRepository repository) {
+    public BookServiceImpl(BookRepository repository,
+                           IsbnIndex isbnIndex,
+                           BookIsbnCache bookIsbnCache,
+                           BookSearchIndex searchIndex,
+                           LoanedBookIndex loanedBooks,
+                           ChangeJournal journal,
+                           BookChangeFeed changeFeed,
+                           BookMetrics metrics) {
         this.repository = repository;
+        this.isbnIndex = isbnIndex;
+        this.bookIsbnCache = bookIsbnCache;
+        this.searchIndex = searchIndex;
+        this.loanedBooks = loanedBooks;
+        this.journal = journal;
+        this.changeFeed = changeFeed;
+        this.metrics = metrics;
     }
 
     @Override
+    @Timed("library.book.service")
     public Book save(Book book) {
-        if (repository.existsByIsbn(book.getIsbn()))
+        // unicidade garantida pelo indice ux_book_isbn: um unico INSERT, sem exists antes
+        Book savedBook;
+        try {
+            savedBook = repository.saveAndFlush(book);
+        } catch (DataIntegrityViolationException e) {
+            metrics.duplicatedIsbn(1);
             throw new BussinessException("Isbn duplicado");
-        return repository.save(book);
+        }
+        isbnIndex.add(book.getIsbn());
+        searchIndex.index(savedBook);
+        journal.bookSaved(savedBook);
+        changeFeed.bookSaved(savedBook);
+        return savedBook;
     }
 
     @Override
@@ -34,34 +86,152 @@ public class BookServiceImpl implements BookService {
     }
 
     @Override
-    public void delete(Book book) {
+    public Optional<Long> getVersionById(Long id) {
+        return repository.findVersionById(id);
+    }
 
+    @Override
+    @Timed("library.book.service")
+    @Transactional
+    public boolean deleteById(Long id) {
+        if (id == null)
+            throw new IllegalArgumentException("Book id cant be null");
+        // o livro vem do cache de segundo nivel: um unico DELETE, que remove so a entrada dele do cache
+        Optional<Book> found = repository.findById(id);
+        if (!found.isPresent())
+            return false;
+        Book deleted = found.get();
+        try {
+            repository.delete(deleted);
+            repository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new BussinessException("Livro possui emprestimos");
+        }
+        // o isbn fica no IsbnIndex: um positivo a mais so custa a confirmacao no banco
+        afterCommit(() -> {
+            bookIsbnCache.evict(deleted);
+            searchIndex.remove(id);
+            journal.bookDeleted(id);
+        });
+        changeFeed.bookDeleted(id);
+        return true;
     }
 
     @Override
-    public Book update(Book book) {
-        if (repository.existsByIsbn(book.getIsbn()))
-            throw new IllegalArgumentException();
-        Book savedBook = repository.save(book);
-        return savedBook;
+    @Timed("library.book.service")
+    @Transactional
+    public Optional<Book> update(Book book) {
+        if (book == null || book.getId() == null)
+            throw new IllegalArgumentException("Book id cant be null");
+        // o livro vem do cache de segundo nivel: um unico UPDATE, que incrementa a versao da entidade
+        Optional<Book> found = repository.findById(book.getId());
+        if (!found.isPresent())
+            return Optional.empty();
+        Book updated = found.get();
+        updated.setTitle(book.getTitle());
+        updated.setAuthor(book.getAuthor());
+        updated.setIsbn(book.getIsbn());
+        // isbn repetido e barrado pelo indice unico ux_book_isbn no proprio UPDATE
+        try {
+            repository.flush();
+        } catch (DataIntegrityViolationException e) {
+            metrics.duplicatedIsbn(1);
+            throw new BussinessException("Isbn duplicado");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new BussinessException("Livro alterado por outra requisicao");
+        }
+        isbnIndex.add(updated.getIsbn());
+        afterCommit(() -> {
+            bookIsbnCache.evict(updated);
+            searchIndex.index(updated);
+            journal.bookUpdated(updated);
+        });
+        changeFeed.bookUpdated(updated);
+        return Optional.of(updated);
     }
 
     @Override
+    @Timed("library.book.service")
     public Page<Book> find(Book filter, Pageable pageRequest) {
-        Example<Book> example = Example.of(filter,
-                ExampleMatcher
-                        .matching()
-                        .withIgnoreCase()
-                        .withIgnoreNullValues()
-                        .withStringMatcher(ExampleMatcher.StringMatcher.STARTING)
-                );
-
-        return repository.findAll(example, pageRequest);
+        Page<Book> page = repository.findPage(filter, pageRequest);
+        metrics.pageServed(page.getNumberOfElements());
+        return page;
+    }
+
+    @Override
+    public Set<Long> getLoanedIds(Collection<Long> bookIds) {
+        return loanedBooks.loanedAmong(bookIds);
+    }
+
+    @Override
+    public List<Book> findAfter(Book filter, BookCursor cursor, int limit) {
+        return repository.findAfter(filter, cursor, limit);
+    }
+
+    @Override
+    public List<Book> search(String query, int limit) {
+        return searchIndex.search(query, limit);
     }
 
     @Override
     public Optional<Book> getBookByIsbn(String isbn) {
-        return null;
+        if (!isbnIndex.mightContain(isbn))
+            return Optional.empty();
+        return bookIsbnCache.get(isbn, repository::findByIsbn);
+    }
+
+    @Override
+    @Transactional
+    public List<Book> importBooks(List<Book> books) {
+        // uma unica consulta para os isbns que o indice nao consegue descartar
+        Set<String> candidates = books.stream()
+                .map(Book::getIsbn)
+                .filter(isbnIndex::mightContain)
+                .collect(Collectors.toSet());
+        Set<String> taken = candidates.isEmpty()
+                ? new HashSet<>()
+                : new HashSet<>(repository.findExistingIsbns(candidates));
+
+        List<Book> accepted = new ArrayList<>(books.size());
+        for (Book book : books) {
+            if (taken.add(book.getIsbn()))
+                accepted.add(book);
+        }
+        metrics.duplicatedIsbn(books.size() - accepted.size());
+        List<Book> savedBooks = repository.saveAll(accepted);
+        // um lote desfeito nao pode deixar isbns, documentos nem registros de livros que nao existem
+        afterCommit(() -> {
+            savedBooks.forEach(book -> isbnIndex.add(book.getIsbn()));
+            savedBooks.forEach(searchIndex::index);
+            savedBooks.forEach(journal::bookSaved);
+        });
+        // o feed ja adia a publicacao para depois do commit
+        savedBooks.forEach(changeFeed::bookSaved);
+        return savedBooks;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportBooks(Consumer<Book> consumer) {
+        try (Stream<Book> books = repository.streamAll()) {
+            books.forEach(consumer);
+        }
+    }
+
+    /**
+     * Dentro de uma transacao executa depois do commit; fora dela, na hora.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
 }
@@ -0,0 +1,118 @@
+package com.springtdd.tddspringlbrary.api.resource.service.impl;
+
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanReturnState;
+import com.springtdd.tddspringlbrary.api.resource.service.index.LoanedBookIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.journal.ChangeJournal;
+import com.springtdd.tddspringlbrary.api.resource.service.lock.StripedLock;
+import com.springtdd.tddspringlbrary.api.service.LoanReturnStatus;
+import com.springtdd.tddspringlbrary.api.service.LoanService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class LoanServiceImpl implements LoanService {
+
+    private LoanRepository repository;
+    private LoanedBookIndex loanedBooks;
+    private ChangeJournal journal;
+    private StripedLock bookLocks;
+    private int returnBatchSize;
+
+    public LoanServiceImpl(LoanRepository repository,
+                           LoanedBookIndex loanedBooks,
+                           ChangeJournal journal,
+                           @Value("${library.loan.lock-stripes:256}") int lockStripes,
+                           @Value("${library.loan.return-batch-size:500}") int returnBatchSize) {
+        this.repository = repository;
+        this.loanedBooks = loanedBooks;
+        this.journal = journal;
+        this.bookLocks = new StripedLock(lockStripes);
+        this.returnBatchSize = returnBatchSize;
+    }
+
+    /**
+     * Entre instancias quem garante um emprestimo ativo por livro e o indice unico de active_book_id.
+     */
+    @Override
+    public Loan save(Loan loan) {
+        Long bookId = loan.getBook().getId();
+        Loan saved = bookLocks.withLock(bookId, () -> {
+            if (loanedBooks.mightBeLoaned(bookId) && repository.existsByBookIdAndReturnedFalse(bookId))
+                throw new BussinessException("Book already borrowed");
+            boolean active = !Boolean.TRUE.equals(loan.getReturned());
+            if (active)
+                loan.setActiveBookId(bookId);
+            Loan savedLoan;
+            try {
+                savedLoan = repository.saveAndFlush(loan);
+            } catch (DataIntegrityViolationException e) {
+                // o banco tem um emprestimo ativo que o indice nao conhecia
+                loanedBooks.add(bookId);
+                throw new BussinessException("Book already borrowed");
+            }
+            if (active)
+                loanedBooks.add(bookId);
+            return savedLoan;
+        });
+        journal.loanSaved(saved);
+        return saved;
+    }
+
+    @Override
+    public LoanReturnStatus returnLoan(Long id) {
+        if (id == null)
+            throw new IllegalArgumentException("Loan id cant be null");
+        return returnLoans(Collections.singletonList(id)).get(id);
+    }
+
+    /**
+     * O UPDATE e o bitmap de emprestimos sao atualizados com os locks dos livros, os mesmos do save.
+     */
+    @Override
+    public Map<Long, LoanReturnStatus> returnLoans(List<Long> ids) {
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Long, LoanReturnStatus> results = new LinkedHashMap<>();
+        distinctIds.forEach(id -> results.put(id, LoanReturnStatus.NOT_FOUND));
+
+        for (int from = 0; from < distinctIds.size(); from += returnBatchSize) {
+            List<Long> batch = distinctIds.subList(from, Math.min(from + returnBatchSize, distinctIds.size()));
+            List<Long> pending = new ArrayList<>(batch.size());
+            List<Long> pendingBooks = new ArrayList<>(batch.size());
+            for (LoanReturnState state : repository.findReturnStates(batch)) {
+                if (Boolean.TRUE.equals(state.getReturned())) {
+                    results.put(state.getId(), LoanReturnStatus.ALREADY_RETURNED);
+                } else {
+                    results.put(state.getId(), LoanReturnStatus.RETURNED);
+                    pending.add(state.getId());
+                    pendingBooks.add(state.getBookId());
+                }
+            }
+            if (!pending.isEmpty()) {
+                bookLocks.withLocks(pendingBooks, () -> {
+                    repository.markReturned(pending);
+                    Set<Long> stillLoaned = new HashSet<>(repository.findLoanedBookIds(pendingBooks));
+                    loanedBooks.remove(pendingBooks.stream()
+                            .filter(bookId -> !stillLoaned.contains(bookId))
+                            .collect(Collectors.toList()));
+                    return null;
+                });
+            }
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.springtdd.tddspringlbrary.api.resource.service.impl;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.ReactiveBookRepository;
+import com.springtdd.tddspringlbrary.api.service.ReactiveBookService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@Service
+@Profile("reactive")
+public class ReactiveBookServiceImpl implements ReactiveBookService {
+
+    private ReactiveBookRepository repository;
+
+    public ReactiveBookServiceImpl(ReactiveBookRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    public Mono<Book> save(Book book) {
+        // o indice unico de isbn decide: um unico insert, sem exists antes
+        return repository.insert(book)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BussinessException("Isbn duplicado"));
+    }
+
+    @Override
+    public Mono<Book> getById(Long id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public Mono<Boolean> deleteById(Long id) {
+        return repository.deleteById(id)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BussinessException("Livro possui emprestimos"))
+                .map(deleted -> deleted > 0);
+    }
+
+    @Override
+    public Mono<Book> update(Book book) {
+        // isbn repetido e barrado pelo indice unico ux_book_isbn no proprio UPDATE
+        return repository.update(book)
+                .onErrorMap(DataIntegrityViolationException.class, e -> new BussinessException("Isbn duplicado"))
+                .filter(updated -> updated > 0)
+                .map(updated -> book);
+    }
+
+    @Override
+    public Flux<Book> find(Book filter, long offset, int limit) {
+        return repository.find(filter, offset, limit);
+    }
+
+}
@@ -0,0 +1,179 @@
+package com.springtdd.tddspringlbrary.api.resource.service.index;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Indice Lucene (BM25) sobre title e author; o ultimo termo da consulta casa por prefixo.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final String ID = "id";
+    private static final String TITLE = "title";
+    private static final String AUTHOR = "author";
+    private static final String ISBN = "isbn";
+
+    private final BookRepository repository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    public BookSearchIndex(BookRepository repository,
+                           @Value("${library.search.index-path:}") String indexPath) throws IOException {
+        this.repository = repository;
+        Directory directory = indexPath.isEmpty() ? new ByteBuffersDirectory() : FSDirectory.open(Paths.get(indexPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE));
+        this.searcherManager = new SearcherManager(writer, null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<Book> books = repository.streamAll()) {
+            books.forEach(this::index);
+        }
+    }
+
+    public void index(Book book) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(book.getId()), Field.Store.YES));
+        document.add(new TextField(TITLE, nullToEmpty(book.getTitle()), Field.Store.YES));
+        document.add(new TextField(AUTHOR, nullToEmpty(book.getAuthor()), Field.Store.YES));
+        document.add(new StoredField(ISBN, nullToEmpty(book.getIsbn())));
+        try {
+            writer.updateDocument(new Term(ID, String.valueOf(book.getId())), document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void remove(Long id) {
+        try {
+            writer.deleteDocuments(new Term(ID, String.valueOf(id)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Montados dos campos armazenados no indice, sem consultar o banco.
+     */
+    public List<Book> search(String text, int limit) {
+        List<String> terms = analyze(text);
+        List<Book> books = new ArrayList<>();
+        if (terms.isEmpty())
+            return books;
+
+        try {
+            // so um thread reabre o searcher; os demais seguem com a versao atual
+            searcherManager.maybeRefresh();
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                for (ScoreDoc hit : searcher.search(buildQuery(terms), limit).scoreDocs) {
+                    Document document = searcher.doc(hit.doc);
+                    books.add(Book.builder()
+                            .id(Long.valueOf(document.get(ID)))
+                            .title(document.get(TITLE))
+                            .author(document.get(AUTHOR))
+                            .isbn(document.get(ISBN))
+                            .build());
+                }
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return books;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        searcherManager.close();
+        writer.close();
+    }
+
+    private Query buildQuery(List<String> terms) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (int i = 0; i < terms.size(); i++) {
+            boolean last = i == terms.size() - 1;
+            Query anyField = new BooleanQuery.Builder()
+                    .add(new BoostQuery(termQuery(TITLE, terms.get(i), last), 2f), BooleanClause.Occur.SHOULD)
+                    .add(termQuery(AUTHOR, terms.get(i), last), BooleanClause.Occur.SHOULD)
+                    .build();
+            query.add(anyField, BooleanClause.Occur.MUST);
+        }
+        return query.build();
+    }
+
+    private Query termQuery(String field, String text, boolean prefix) {
+        Term term = new Term(field, text);
+        if (!prefix)
+            return new TermQuery(term);
+        // termo exato pontua acima do prefixo
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(term), BooleanClause.Occur.SHOULD)
+                .add(new PrefixQuery(term), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    private List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null)
+            return terms;
+        try (TokenStream stream = analyzer.tokenStream(TITLE, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken())
+                terms.add(term.toString());
+            stream.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return terms;
+    }
+
+    private static String nullToEmpty(String value) {
+        return value == null ? "" : value;
+    }
+
+}
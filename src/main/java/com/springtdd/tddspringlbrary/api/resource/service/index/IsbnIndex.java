@@ -0,0 +1,54 @@
+package com.springtdd.tddspringlbrary.api.resource.service.index;
+
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Uma resposta negativa e definitiva; uma positiva deve ser confirmada no banco.
+ */
+@Component
+public class IsbnIndex {
+
+    private final BookRepository repository;
+    private final Set<String> isbns = ConcurrentHashMap.newKeySet();
+    private volatile boolean loaded;
+
+    public IsbnIndex(BookRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        try (Stream<String> stream = repository.streamAllIsbns()) {
+            stream.forEach(this::add);
+        }
+        loaded = true;
+    }
+
+    public boolean mightContain(String isbn) {
+        return !loaded || isbn == null || isbns.contains(isbn);
+    }
+
+    public void add(String isbn) {
+        if (isbn != null)
+            isbns.add(isbn);
+    }
+
+    public void remove(String isbn) {
+        if (isbn != null)
+            isbns.remove(isbn);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.springtdd.tddspringlbrary.api.resource.service.index;
+
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Uma resposta negativa e definitiva; uma positiva deve ser confirmada no banco.
+ */
+@Component
+public class LoanedBookIndex {
+
+    private final LoanRepository repository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Roaring64Bitmap loaned = new Roaring64Bitmap();
+    private List<Consumer<Roaring64Bitmap>> updatesDuringLoad;
+    private volatile boolean loaded;
+
+    public LoanedBookIndex(LoanRepository repository) {
+        this.repository = repository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        lock.writeLock().lock();
+        try {
+            updatesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Roaring64Bitmap snapshot = new Roaring64Bitmap();
+        try (Stream<Long> stream = repository.streamLoanedBookIds()) {
+            stream.forEach(snapshot::addLong);
+        }
+        lock.writeLock().lock();
+        try {
+            // a leitura pode ou nao ter visto cada atualizacao; reaplicar e idempotente
+            updatesDuringLoad.forEach(update -> update.accept(snapshot));
+            updatesDuringLoad = null;
+            snapshot.runOptimize();
+            loaned = snapshot;
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean mightBeLoaned(Long bookId) {
+        return !loaded || bookId == null || contains(bookId);
+    }
+
+    /**
+     * Consulta o banco enquanto o bitmap nao foi carregado.
+     */
+    public Set<Long> loanedAmong(Collection<Long> bookIds) {
+        if (bookIds.isEmpty())
+            return new HashSet<>();
+        if (!loaded)
+            return new HashSet<>(repository.findLoanedBookIds(bookIds));
+        Set<Long> result = new HashSet<>();
+        lock.readLock().lock();
+        try {
+            for (Long bookId : bookIds) {
+                if (bookId != null && loaned.contains(bookId))
+                    result.add(bookId);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public void add(Long bookId) {
+        if (bookId == null)
+            return;
+        update(bitmap -> bitmap.addLong(bookId));
+    }
+
+    public void remove(Collection<Long> bookIds) {
+        List<Long> removed = new ArrayList<>(bookIds);
+        update(bitmap -> {
+            for (Long bookId : removed) {
+                if (bookId != null)
+                    bitmap.removeLong(bookId);
+            }
+        });
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return loaned.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    private void update(Consumer<Roaring64Bitmap> update) {
+        lock.writeLock().lock();
+        try {
+            update.accept(loaned);
+            if (updatesDuringLoad != null)
+                updatesDuringLoad.add(update);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean contains(long bookId) {
+        lock.readLock().lock();
+        try {
+            return loaned.contains(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.springtdd.tddspringlbrary.api.resource.service.job;
+
+import com.springtdd.tddspringlbrary.api.entity.JobCheckpoint;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.JobCheckpointRepository;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Marca emprestimos atrasados em blocos por keyset, retomando do ultimo id em job_checkpoint.
+ */
+@Component
+public class OverdueLoanSweeper {
+
+    static final String JOB = "overdue-loans";
+
+    private final LoanRepository loanRepository;
+    private final JobCheckpointRepository checkpoints;
+    private final int loanDays;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService workers;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Counter scanned;
+    private final Counter marked;
+    private final Timer runs;
+    private final DistributionSummary throughput;
+    private volatile long lastCompletedAt = System.currentTimeMillis();
+
+    public OverdueLoanSweeper(LoanRepository loanRepository,
+                              JobCheckpointRepository checkpoints,
+                              MeterRegistry registry,
+                              @Value("${library.loan.overdue.loan-days:14}") int loanDays,
+                              @Value("${library.loan.overdue.chunk-size:1000}") int chunkSize,
+                              @Value("${library.loan.overdue.parallelism:4}") int parallelism) {
+        this.loanRepository = loanRepository;
+        this.checkpoints = checkpoints;
+        this.loanDays = loanDays;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.workers = Executors.newFixedThreadPool(parallelism, daemonThreads());
+
+        this.scanned = Counter.builder("library.loan.overdue.scanned")
+                .description("Emprestimos nao devolvidos lidos pela varredura")
+                .register(registry);
+        this.marked = Counter.builder("library.loan.overdue.marked")
+                .description("Emprestimos marcados como atrasados")
+                .register(registry);
+        this.runs = Timer.builder("library.loan.overdue.run")
+                .description("Duracao de cada varredura")
+                .register(registry);
+        this.throughput = DistributionSummary.builder("library.loan.overdue.throughput")
+                .description("Emprestimos lidos por segundo em cada varredura")
+                .baseUnit("loans/s")
+                .register(registry);
+        Gauge.builder("library.loan.overdue.lag", this, sweeper -> (System.currentTimeMillis() - sweeper.lastCompletedAt) / 1000.0)
+                .description("Segundos desde a ultima varredura completa")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${library.loan.overdue.interval:PT1H}",
+            initialDelayString = "${library.loan.overdue.initial-delay:PT1M}")
+    public void sweep() {
+        sweep(LocalDate.now());
+    }
+
+    /**
+     * Quantos emprestimos foram marcados; -1 se ja houver uma varredura em andamento.
+     */
+    public long sweep(LocalDate today) {
+        if (!running.compareAndSet(false, true))
+            return -1;
+        long start = System.nanoTime();
+        try {
+            LocalDate dueBefore = today.minusDays(loanDays);
+            JobCheckpoint checkpoint = checkpoints.findById(JOB)
+                    .orElseGet(() -> JobCheckpoint.builder().name(JOB).lastId(0l).build());
+            long lastId = checkpoint.getLastId();
+            long scannedLoans = 0;
+            long markedLoans = 0;
+            boolean exhausted = false;
+
+            while (!exhausted) {
+                List<List<Long>> window = new ArrayList<>(parallelism);
+                while (window.size() < parallelism) {
+                    List<Long> ids = loanRepository.findUnreturnedIdsAfter(lastId, dueBefore, PageRequest.of(0, chunkSize));
+                    if (!ids.isEmpty()) {
+                        window.add(ids);
+                        lastId = ids.get(ids.size() - 1);
+                    }
+                    if (ids.size() < chunkSize) {
+                        exhausted = true;
+                        break;
+                    }
+                }
+
+                List<Future<Integer>> results = new ArrayList<>(window.size());
+                for (List<Long> ids : window)
+                    results.add(workers.submit(() -> loanRepository.markOverdue(ids)));
+                for (int i = 0; i < results.size(); i++) {
+                    markedLoans += await(results.get(i));
+                    scannedLoans += window.get(i).size();
+                }
+
+                // janela inteira concluida: falhas daqui em diante recomecam deste id
+                saveCheckpoint(checkpoint, exhausted ? 0 : lastId);
+            }
+
+            scanned.increment(scannedLoans);
+            marked.increment(markedLoans);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            throughput.record(seconds > 0 ? scannedLoans / seconds : scannedLoans);
+            lastCompletedAt = System.currentTimeMillis();
+            return markedLoans;
+        } finally {
+            runs.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void saveCheckpoint(JobCheckpoint checkpoint, long lastId) {
+        checkpoint.setLastId(lastId);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpoints.save(checkpoint);
+    }
+
+    private static int await(Future<Integer> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Overdue sweep interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Overdue sweep failed", e.getCause());
+        }
+    }
+
+    private static CustomizableThreadFactory daemonThreads() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("overdue-sweeper-");
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+}
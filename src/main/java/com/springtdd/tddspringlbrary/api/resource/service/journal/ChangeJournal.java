@@ -0,0 +1,233 @@
+package com.springtdd.tddspringlbrary.api.resource.service.journal;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diario append-only em segmentos mapeados em memoria; desligado sem library.journal.path.
+ */
+@Slf4j
+@Component
+public class ChangeJournal {
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceEachRecord;
+    private final ScheduledExecutorService flusher;
+
+    private FileChannel channel;
+    private volatile MappedByteBuffer segment;
+    private int position;
+    private long nextSequence = 1;
+    private volatile boolean dirty;
+
+    public ChangeJournal(@Value("${library.journal.path:}") String path,
+                         @Value("${library.journal.segment-size:64MB}") DataSize segmentSize,
+                         @Value("${library.journal.flush-interval:50ms}") Duration flushInterval) {
+        this.directory = path.isEmpty() ? null : Paths.get(path);
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.forceEachRecord = flushInterval.isZero();
+        if (directory == null) {
+            this.flusher = null;
+            return;
+        }
+        open();
+        if (forceEachRecord) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "change-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long nanos = flushInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::flush, nanos, nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    public ChangeJournalReader reader() {
+        if (directory == null)
+            throw new IllegalStateException("Change journal is disabled");
+        return new ChangeJournalReader(directory);
+    }
+
+    public long bookSaved(Book book) {
+        return append(bookRecord(JournalRecord.Type.BOOK_SAVED, book));
+    }
+
+    public long bookUpdated(Book book) {
+        return append(bookRecord(JournalRecord.Type.BOOK_UPDATED, book));
+    }
+
+    public long bookDeleted(Long id) {
+        return append(JournalRecord.builder().type(JournalRecord.Type.BOOK_DELETED).entityId(id).build());
+    }
+
+    public long loanSaved(Loan loan) {
+        Book book = loan.getBook();
+        return append(JournalRecord.builder()
+                .type(JournalRecord.Type.LOAN_SAVED)
+                .entityId(loan.getId())
+                .bookId(book == null ? null : book.getId())
+                .isbn(book == null ? null : book.getIsbn())
+                .customer(loan.getCustomer())
+                .loanDate(loan.getLoanDate())
+                .returned(loan.getReturned())
+                .build());
+    }
+
+    /**
+     * Retorna a sequencia gravada, ou -1 com o diario desligado.
+     */
+    public long append(JournalRecord record) {
+        if (directory == null)
+            return -1;
+        // a codificacao fica fora do lock; dentro dele so a copia para o segmento
+        byte[] body = JournalCodec.encodeBody(record);
+        int length = JournalCodec.HEADER_SIZE + body.length;
+        if (length + 4 > segmentSize)
+            throw new IllegalArgumentException("Journal record larger than a segment: " + length + " bytes");
+
+        synchronized (this) {
+            if (position + length + 4 > segmentSize)
+                roll();
+            long sequence = nextSequence++;
+            position += JournalCodec.write(segment, position, sequence, System.currentTimeMillis(),
+                    record.getType(), body);
+            if (forceEachRecord)
+                segment.force();
+            else
+                dirty = true;
+            return sequence;
+        }
+    }
+
+    public long lastSequence() {
+        synchronized (this) {
+            return nextSequence - 1;
+        }
+    }
+
+    /**
+     * Forca o segmento atual para o disco; chamado em grupo pelo flusher.
+     */
+    public void flush() {
+        if (!dirty)
+            return;
+        dirty = false;
+        try {
+            segment.force();
+        } catch (RuntimeException e) {
+            dirty = true;
+            log.warn("Could not flush change journal", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (directory == null)
+            return;
+        if (flusher != null)
+            flusher.shutdownNow();
+        synchronized (this) {
+            segment.force();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Descarta um registro incompleto no fim do ultimo segmento.
+     */
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Path> segments = ChangeJournalReader.segments(directory);
+        if (segments.isEmpty()) {
+            openSegment(ChangeJournalReader.segmentPath(directory, nextSequence));
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        nextSequence = ChangeJournalReader.baseSequence(last);
+        openSegment(last);
+        int length;
+        while ((length = JournalCodec.length(segment, position)) > 0) {
+            nextSequence = JournalCodec.sequence(segment, position) + 1;
+            position += length;
+        }
+        if (length == JournalCodec.SEALED) {
+            roll();
+        } else if (position + 4 <= segment.limit() && segment.getInt(position) != JournalCodec.END) {
+            log.warn("Discarding incomplete change journal record at {} in {}", position, last);
+            for (int i = position; i < segment.limit(); i++)
+                segment.put(i, (byte) 0);
+            segment.force();
+        }
+        log.info("Change journal opened at {}, next sequence {}", last, nextSequence);
+    }
+
+    private void roll() {
+        if (position + 4 <= segment.limit())
+            segment.putInt(position, JournalCodec.SEALED);
+        segment.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        openSegment(ChangeJournalReader.segmentPath(directory, nextSequence));
+    }
+
+    private void openSegment(Path path) {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long size = Math.max(channel.size(), segmentSize);
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static JournalRecord bookRecord(JournalRecord.Type type, Book book) {
+        return JournalRecord.builder()
+                .type(type)
+                .entityId(book.getId())
+                .version(book.getVersion())
+                .title(book.getTitle())
+                .author(book.getAuthor())
+                .isbn(book.getIsbn())
+                .build();
+    }
+
+}
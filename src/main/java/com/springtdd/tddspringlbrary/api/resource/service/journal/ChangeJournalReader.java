@@ -0,0 +1,101 @@
+package com.springtdd.tddspringlbrary.api.resource.service.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * replay entrega o que ja esta escrito; tail segue ate a thread ser interrompida.
+ */
+public class ChangeJournalReader {
+
+    static final String SUFFIX = ".journal";
+
+    private final Path directory;
+
+    public ChangeJournalReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Retorna a sequencia seguinte a ultima entregue.
+     */
+    public long replay(long fromSequence, Consumer<JournalRecord> consumer) {
+        List<Path> segments = segments(directory);
+        int first = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (baseSequence(segments.get(i)) <= fromSequence)
+                first = i;
+        }
+
+        long next = fromSequence;
+        for (int i = first; i < segments.size(); i++) {
+            boolean last = i == segments.size() - 1;
+            MappedByteBuffer segment = map(segments.get(i));
+            int position = 0;
+            while (true) {
+                int length = JournalCodec.length(segment, position);
+                if (length == JournalCodec.SEALED || length == JournalCodec.END)
+                    break;
+                if (JournalCodec.sequence(segment, position) >= next) {
+                    JournalRecord record = JournalCodec.decode(segment, position, length);
+                    consumer.accept(record);
+                    next = record.getSequence() + 1;
+                }
+                position += length;
+            }
+            if (last)
+                break;
+        }
+        return next;
+    }
+
+    public void tail(long fromSequence, Consumer<JournalRecord> consumer, Duration pollInterval) throws InterruptedException {
+        long next = fromSequence;
+        while (true) {
+            long after = replay(next, consumer);
+            if (after == next)
+                Thread.sleep(pollInterval.toMillis());
+            next = after;
+        }
+    }
+
+    static List<Path> segments(Path directory) {
+        if (!Files.isDirectory(directory))
+            return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Path segmentPath(Path directory, long baseSequence) {
+        return directory.resolve(String.format("%020d%s", baseSequence, SUFFIX));
+    }
+
+    static long baseSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static MappedByteBuffer map(Path segment) {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.springtdd.tddspringlbrary.api.resource.service.journal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.zip.CRC32;
+
+/**
+ * Registro big-endian: length, crc32, sequence, timestamp, type e corpo; o length e escrito por ultimo.
+ */
+final class JournalCodec {
+
+    static final int HEADER_SIZE = 25;
+    static final int END = 0;
+    static final int SEALED = -1;
+
+    private static final int NULL_STRING = 0xFFFF;
+    private static final long NULL_LONG = -1;
+
+    private JournalCodec() {
+    }
+
+    static byte[] encodeBody(JournalRecord record) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(orNull(record.getEntityId()));
+            switch (record.getType()) {
+                case BOOK_SAVED:
+                case BOOK_UPDATED:
+                    out.writeLong(orNull(record.getVersion()));
+                    writeString(out, record.getTitle());
+                    writeString(out, record.getAuthor());
+                    writeString(out, record.getIsbn());
+                    break;
+                case LOAN_SAVED:
+                    out.writeLong(orNull(record.getBookId()));
+                    out.writeLong(record.getLoanDate() == null ? Long.MIN_VALUE : record.getLoanDate().toEpochDay());
+                    out.writeByte(record.getReturned() == null ? -1 : record.getReturned() ? 1 : 0);
+                    writeString(out, record.getCustomer());
+                    writeString(out, record.getIsbn());
+                    break;
+                default:
+                    break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static int write(ByteBuffer target, int position, long sequence, long timestamp,
+                     JournalRecord.Type type, byte[] body) {
+        int length = HEADER_SIZE + body.length;
+        ByteBuffer record = target.duplicate();
+        record.position(position + 8);
+        record.putLong(sequence).putLong(timestamp).put(type.code()).put(body);
+        target.putInt(position + 4, crc(target, position, length));
+        target.putInt(position, length);
+        return length;
+    }
+
+    /**
+     * Tamanho do registro em position, SEALED, ou END quando nao ha registro inteiro ali.
+     */
+    static int length(ByteBuffer source, int position) {
+        if (source.limit() - position < 4)
+            return END;
+        int length = source.getInt(position);
+        if (length == SEALED)
+            return SEALED;
+        if (length < HEADER_SIZE || length > source.limit() - position)
+            return END;
+        if (source.getInt(position + 4) != crc(source, position, length))
+            return END;
+        return length;
+    }
+
+    static long sequence(ByteBuffer source, int position) {
+        return source.getLong(position + 8);
+    }
+
+    static JournalRecord decode(ByteBuffer source, int position, int length) {
+        ByteBuffer in = source.duplicate();
+        in.limit(position + length).position(position + 8);
+        JournalRecord record = new JournalRecord();
+        record.setSequence(in.getLong());
+        record.setTimestamp(in.getLong());
+        record.setType(JournalRecord.Type.of(in.get()));
+        record.setEntityId(readLong(in));
+        switch (record.getType()) {
+            case BOOK_SAVED:
+            case BOOK_UPDATED:
+                record.setVersion(readLong(in));
+                record.setTitle(readString(in));
+                record.setAuthor(readString(in));
+                record.setIsbn(readString(in));
+                break;
+            case LOAN_SAVED:
+                record.setBookId(readLong(in));
+                long epochDay = in.getLong();
+                record.setLoanDate(epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay));
+                byte returned = in.get();
+                record.setReturned(returned < 0 ? null : returned == 1);
+                record.setCustomer(readString(in));
+                record.setIsbn(readString(in));
+                break;
+            default:
+                break;
+        }
+        return record;
+    }
+
+    private static int crc(ByteBuffer source, int position, int length) {
+        ByteBuffer covered = source.duplicate();
+        covered.limit(position + length).position(position + 8);
+        CRC32 crc = new CRC32();
+        crc.update(covered);
+        return (int) crc.getValue();
+    }
+
+    private static long orNull(Long value) {
+        return value == null ? NULL_LONG : value;
+    }
+
+    private static Long readLong(ByteBuffer in) {
+        long value = in.getLong();
+        return value == NULL_LONG ? null : value;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeShort(NULL_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length >= NULL_STRING)
+            throw new IllegalArgumentException("Journal field too long: " + bytes.length + " bytes");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        if (length == NULL_STRING)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
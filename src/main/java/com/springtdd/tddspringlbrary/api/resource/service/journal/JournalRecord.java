@@ -0,0 +1,59 @@
+package com.springtdd.tddspringlbrary.api.resource.service.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Livros usam title/author/isbn/version; emprestimos usam bookId/isbn/customer/loanDate/returned.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+
+    /**
+     * O codigo vai para o arquivo; nunca reaproveitar um codigo existente.
+     */
+    public enum Type {
+        BOOK_SAVED(1), BOOK_UPDATED(2), BOOK_DELETED(3), LOAN_SAVED(4);
+
+        private final byte code;
+
+        Type(int code) {
+            this.code = (byte) code;
+        }
+
+        byte code() {
+            return code;
+        }
+
+        static Type of(byte code) {
+            for (Type type : values()) {
+                if (type.code == code)
+                    return type;
+            }
+            throw new IllegalArgumentException("Unknown journal record type " + code);
+        }
+    }
+
+    private long sequence;
+    private long timestamp;
+    private Type type;
+    private Long entityId;
+
+    private Long version;
+    private String title;
+    private String author;
+    private String isbn;
+
+    private Long bookId;
+    private String customer;
+    private LocalDate loanDate;
+    private Boolean returned;
+
+}
@@ -0,0 +1,59 @@
+package com.springtdd.tddspringlbrary.api.resource.service.lock;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Chaves iguais sempre serializam; chaves diferentes so disputam quando caem na mesma faixa.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    public StripedLock(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++)
+            locks[i] = new ReentrantLock();
+    }
+
+    public <T> T withLock(Object key, Supplier<T> action) {
+        ReentrantLock lock = lockFor(key);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Trava as faixas em ordem crescente de indice, para nao haver deadlock.
+     */
+    public <T> T withLocks(Collection<?> keys, Supplier<T> action) {
+        int[] stripes = keys.stream().mapToInt(this::stripeFor).distinct().sorted().toArray();
+        int locked = 0;
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--)
+                locks[stripes[i]].unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(Object key) {
+        return locks[stripeFor(key)];
+    }
+
+    private int stripeFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return hash & (locks.length - 1);
+    }
+
+}
@@ -0,0 +1,74 @@
+package com.springtdd.tddspringlbrary.api.resource.service.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.service.BookService;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escreve o catalogo inteiro no stream, um livro por vez, sem monta-lo em memoria.
+ */
+@Component
+public class BookExporter {
+
+    private BookService service;
+    private BookMapper bookMapper;
+    private ObjectMapper objectMapper;
+
+    public BookExporter(BookService service, BookMapper bookMapper, ObjectMapper objectMapper) {
+        this.service = service;
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+    }
+
+    public void writeNdjson(OutputStream out) throws IOException {
+        try (SequenceWriter writer = objectMapper.writerFor(BookDTO.class)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            service.exportBooks(book -> {
+                try {
+                    writer.write(bookMapper.toDto(book));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    public void writeCsv(OutputStream out) throws IOException {
+        try (Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8)) {
+            writer.write("id,title,author,isbn\n");
+            service.exportBooks(book -> {
+                try {
+                    writer.write(csvLine(book));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private static String csvLine(Book book) {
+        return book.getId() + "," + csvField(book.getTitle()) + ","
+                + csvField(book.getAuthor()) + "," + csvField(book.getIsbn()) + "\n";
+    }
+
+    private static String csvField(String value) {
+        if (value == null)
+            return "";
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r"))
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        return value;
+    }
+
+}
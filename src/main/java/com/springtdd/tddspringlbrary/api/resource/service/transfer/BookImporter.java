@@ -0,0 +1,224 @@
+package com.springtdd.tddspringlbrary.api.resource.service.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookImportResultDTO;
+import com.springtdd.tddspringlbrary.api.resource.mapper.BookMapper;
+import com.springtdd.tddspringlbrary.api.service.BookService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Importa livros em blocos de library.import.chunk-size, escrevendo um resultado NDJSON por item.
+ */
+@Component
+public class BookImporter {
+
+    private BookService service;
+    private BookMapper bookMapper;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private int chunkSize;
+
+    public BookImporter(BookService service,
+                        BookMapper bookMapper,
+                        ObjectMapper objectMapper,
+                        Validator validator,
+                        @Value("${library.import.chunk-size:500}") int chunkSize) {
+        this.service = service;
+        this.bookMapper = bookMapper;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    public void importBooks(InputStream body, boolean ndjson, OutputStream out) throws IOException {
+        try (SequenceWriter results = objectMapper.writerFor(BookImportResultDTO.class)
+                .withRootValueSeparator("\n")
+                .writeValues(out)) {
+            Chunk chunk = new Chunk(results);
+            if (ndjson)
+                readLines(body, chunk);
+            else
+                readArray(body, chunk);
+            chunk.flush();
+        }
+    }
+
+    private void readLines(InputStream body, Chunk chunk) throws IOException {
+        ObjectReader reader = objectMapper.readerFor(BookDTO.class);
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank())
+                continue;
+            BookDTO dto;
+            try {
+                dto = reader.readValue(line);
+            } catch (JsonProcessingException e) {
+                chunk.addInvalid("Json invalido: " + e.getOriginalMessage());
+                continue;
+            }
+            chunk.add(dto);
+        }
+    }
+
+    private void readArray(InputStream body, Chunk chunk) throws IOException {
+        try (MappingIterator<BookDTO> items = objectMapper.readerFor(BookDTO.class).readValues(body)) {
+            while (true) {
+                BookDTO dto;
+                try {
+                    if (!items.hasNextValue())
+                        return;
+                    dto = items.nextValue();
+                } catch (JsonProcessingException e) {
+                    // depois de um erro de sintaxe o restante do array nao pode ser lido com seguranca
+                    chunk.addInvalid("Json invalido: " + e.getOriginalMessage());
+                    return;
+                }
+                chunk.add(dto);
+            }
+        } catch (JsonProcessingException e) {
+            // corpo que nem comeca como JSON
+            chunk.addInvalid("Json invalido: " + e.getOriginalMessage());
+        }
+    }
+
+    private void importChunk(List<BookDTO> chunk, List<String> readErrors, long firstIndex,
+                             SequenceWriter results) throws IOException {
+        List<BookImportResultDTO> chunkResults = new ArrayList<>(chunk.size());
+        List<Book> books = new ArrayList<>(chunk.size());
+        List<Book> booksByPosition = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            BookDTO dto = chunk.get(i);
+            BookImportResultDTO result = BookImportResultDTO.builder().index(firstIndex + i).build();
+            Book book = null;
+            if (dto == null) {
+                result.setStatus(BookImportResultDTO.Status.INVALID);
+                result.setErros(List.of(readErrors.get(i)));
+            } else {
+                result.setIsbn(dto.getIsbn());
+                Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+                if (violations.isEmpty()) {
+                    book = bookMapper.toEntity(dto);
+                    books.add(book);
+                } else {
+                    result.setStatus(BookImportResultDTO.Status.INVALID);
+                    result.setErros(violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .collect(Collectors.toList()));
+                }
+            }
+            chunkResults.add(result);
+            booksByPosition.add(book);
+        }
+
+        Map<Book, String> failures = new IdentityHashMap<>();
+        if (!books.isEmpty()) {
+            try {
+                service.importBooks(books);
+            } catch (RuntimeException e) {
+                // o bloco voltou atras inteiro: um a um isola o livro que impede o commit
+                importOneByOne(books, failures);
+            }
+        }
+
+        for (int i = 0; i < chunkResults.size(); i++) {
+            BookImportResultDTO result = chunkResults.get(i);
+            Book book = booksByPosition.get(i);
+            if (book != null && failures.containsKey(book)) {
+                result.setStatus(BookImportResultDTO.Status.FAILED);
+                result.setErros(List.of(failures.get(book)));
+            } else if (book != null) {
+                result.setId(book.getId());
+                result.setStatus(book.getId() != null
+                        ? BookImportResultDTO.Status.CREATED
+                        : BookImportResultDTO.Status.DUPLICATED);
+            }
+            results.write(result);
+        }
+        results.flush();
+    }
+
+    private void importOneByOne(List<Book> books, Map<Book, String> failures) {
+        for (Book book : books) {
+            // id e versao atribuidos no lote desfeito fariam o save virar merge
+            book.setId(null);
+            book.setVersion(null);
+            try {
+                book.setId(service.save(book).getId());
+            } catch (BussinessException e) {
+                book.setId(null);
+            } catch (RuntimeException e) {
+                book.setId(null);
+                failures.put(book, String.valueOf(e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Itens lidos e ainda nao importados; um item sem livro guarda o erro de leitura.
+     */
+    private final class Chunk {
+
+        private final SequenceWriter results;
+        private final List<BookDTO> items = new ArrayList<>(chunkSize);
+        private final List<String> readErrors = new ArrayList<>(chunkSize);
+        private long firstIndex;
+
+        Chunk(SequenceWriter results) {
+            this.results = results;
+        }
+
+        void add(BookDTO dto) throws IOException {
+            if (dto == null) {
+                addInvalid("Livro ausente");
+                return;
+            }
+            items.add(dto);
+            readErrors.add(null);
+            if (items.size() == chunkSize)
+                flush();
+        }
+
+        void addInvalid(String error) throws IOException {
+            items.add(null);
+            readErrors.add(error);
+            if (items.size() == chunkSize)
+                flush();
+        }
+
+        void flush() throws IOException {
+            if (items.isEmpty())
+                return;
+            importChunk(items, readErrors, firstIndex, results);
+            firstIndex += items.size();
+            items.clear();
+            readErrors.clear();
+        }
+
+    }
+
+}
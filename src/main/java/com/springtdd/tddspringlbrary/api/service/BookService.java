@@ -1,10 +1,15 @@
 package com.springtdd.tddspringlbrary.api.service;
 
 import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface BookService {
 
@@ -12,11 +17,47 @@ public interface BookService {
 
     Optional<Book> getById(Long id);
 
-    void delete(Book book);
+    /**
+     * Apenas a versao atual do livro, para revalidar ETags sem carregar a entidade.
+     */
+    Optional<Long> getVersionById(Long id);
 
-    Book update(Book book);
+    /**
+     * Retorna false quando nenhum livro tinha o id.
+     */
+    boolean deleteById(Long id);
 
+    /**
+     * Atualiza titulo, autor e isbn; retorna vazio quando nenhum livro tinha o id.
+     */
+    Optional<Book> update(Book book);
+
+    /**
+     * Pagina para listagem; os livros sao valores somente leitura, fora do contexto de persistencia.
+     */
     Page<Book> find(Book filter, Pageable pageable);
 
+    /**
+     * Ids com emprestimo ativo entre os livros informados, lidos do bitmap em memoria.
+     */
+    Set<Long> getLoanedIds(Collection<Long> bookIds);
+
+    List<Book> findAfter(Book filter, BookCursor cursor, int limit);
+
+    /**
+     * Busca textual em titulo e autor, ordenada por relevancia.
+     */
+    List<Book> search(String query, int limit);
+
     Optional<Book> getBookByIsbn(String isbn);
+
+    /**
+     * Os livros salvos recebem id; os de isbn duplicado ficam sem id.
+     */
+    List<Book> importBooks(List<Book> books);
+
+    /**
+     * Percorre o catalogo inteiro em ordem de id, entregando um livro por vez ao consumer.
+     */
+    void exportBooks(Consumer<Book> consumer);
 }
@@ -0,0 +1,8 @@
+package com.springtdd.tddspringlbrary.api.service;
+
+/**
+ * Resultado da devolucao de um emprestimo.
+ */
+public enum LoanReturnStatus {
+    RETURNED, ALREADY_RETURNED, NOT_FOUND
+}
@@ -2,6 +2,19 @@ package com.springtdd.tddspringlbrary.api.service;
 
 import com.springtdd.tddspringlbrary.api.entity.Loan;
 
+import java.util.List;
+import java.util.Map;
+
 public interface LoanService {
     Loan save(Loan loan);
+
+    /**
+     * Devolve um emprestimo com um unico UPDATE.
+     */
+    LoanReturnStatus returnLoan(Long id);
+
+    /**
+     * O mapa segue a ordem dos ids recebidos, sem repeticoes.
+     */
+    Map<Long, LoanReturnStatus> returnLoans(List<Long> ids);
 }
@@ -0,0 +1,27 @@
+package com.springtdd.tddspringlbrary.api.service;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * isbn duplicado termina com BussinessException, como no BookService.
+ */
+public interface ReactiveBookService {
+
+    Mono<Book> save(Book book);
+
+    Mono<Book> getById(Long id);
+
+    /**
+     * Emite false quando nenhum livro tinha o id.
+     */
+    Mono<Boolean> deleteById(Long id);
+
+    /**
+     * Emite o livro atualizado, ou vazio se nao existir.
+     */
+    Mono<Book> update(Book book);
+
+    Flux<Book> find(Book filter, long offset, int limit);
+}
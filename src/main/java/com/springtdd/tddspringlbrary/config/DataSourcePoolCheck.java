@@ -0,0 +1,79 @@
+package com.springtdd.tddspringlbrary.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Valida uma conexao na subida e publica library.db.pool.saturation.
+ */
+@Slf4j
+@Component
+public class DataSourcePoolCheck implements MeterBinder {
+
+    private final DataSource dataSource;
+    private final int validationTimeoutSeconds;
+
+    public DataSourcePoolCheck(DataSource dataSource,
+                               @Value("${library.datasource.validation-timeout-seconds:5}") int validationTimeoutSeconds) {
+        this.dataSource = dataSource;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void check() {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds))
+                throw new IllegalStateException("Database connection is not valid");
+            log.info("Database {} reachable", connection.getMetaData().getURL());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Database is not reachable", e);
+        }
+
+        HikariDataSource hikari = hikari();
+        if (hikari == null || hikari.getHikariPoolMXBean() == null)
+            return;
+        HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+        log.info("Pool {}: max={}, minIdle={}, total={}, active={}, idle={}, waiting={}, saturation={}",
+                hikari.getPoolName(), hikari.getMaximumPoolSize(), hikari.getMinimumIdle(),
+                pool.getTotalConnections(), pool.getActiveConnections(), pool.getIdleConnections(),
+                pool.getThreadsAwaitingConnection(), saturation());
+    }
+
+    /**
+     * Fracao do pool em uso; 1.0 com threads esperando indica pool subdimensionado.
+     */
+    public double saturation() {
+        HikariDataSource hikari = hikari();
+        if (hikari == null || hikari.getHikariPoolMXBean() == null)
+            return Double.NaN;
+        return (double) hikari.getHikariPoolMXBean().getActiveConnections() / hikari.getMaximumPoolSize();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("library.db.pool.saturation", this, DataSourcePoolCheck::saturation)
+                .description("Conexoes ativas sobre o tamanho maximo do pool")
+                .register(registry);
+    }
+
+    private HikariDataSource hikari() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+}
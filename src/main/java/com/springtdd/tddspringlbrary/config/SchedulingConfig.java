@@ -0,0 +1,22 @@
+package com.springtdd.tddspringlbrary.config;
+
+import com.springtdd.tddspringlbrary.api.resource.service.job.OverdueLoanSweeper;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// jobs agendados; library.scheduling.enabled=false desliga todos
+@Configuration(proxyBeanMethods = false)
+@EnableScheduling
+@ConditionalOnProperty(name = "library.scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+
+    // com lazy-initialization (fast-start) um job nunca criado nunca seria agendado
+    @Bean
+    static LazyInitializationExcludeFilter eagerScheduledJobs() {
+        return LazyInitializationExcludeFilter.forBeanTypes(OverdueLoanSweeper.class);
+    }
+
+}
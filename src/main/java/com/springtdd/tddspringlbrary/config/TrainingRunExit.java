@@ -0,0 +1,21 @@
+package com.springtdd.tddspringlbrary.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Encerra a execucao de treino do profile cds assim que a aplicacao fica pronta.
+ */
+@Component
+@ConditionalOnProperty(name = "library.startup.training-run", havingValue = "true")
+public class TrainingRunExit {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exit(ApplicationReadyEvent event) {
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.springtdd.tddspringlbrary.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Meters criados uma vez, para o caminho quente so incrementar.
+ */
+@Component
+public class BookMetrics {
+
+    private final Counter duplicatedIsbn;
+    private final DistributionSummary pageSize;
+
+    public BookMetrics(MeterRegistry registry) {
+        this.duplicatedIsbn = Counter.builder("library.book.isbn.duplicated")
+                .description("Livros rejeitados por isbn duplicado")
+                .register(registry);
+        this.pageSize = DistributionSummary.builder("library.book.page.size")
+                .description("Livros devolvidos por pagina de filterBooks")
+                .baseUnit("books")
+                .register(registry);
+    }
+
+    public void duplicatedIsbn(int count) {
+        if (count > 0)
+            duplicatedIsbn.increment(count);
+    }
+
+    public void pageServed(int books) {
+        pageSize.record(books);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.springtdd.tddspringlbrary.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Publica library.db.statements por requisicao; requisicoes assincronas nao sao contadas.
+ */
+@Component
+public class QueryCountInterceptor implements AsyncHandlerInterceptor, WebMvcConfigurer {
+
+    private final ObjectProvider<MeterRegistry> registry;
+    private final ConcurrentMap<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public QueryCountInterceptor(ObjectProvider<MeterRegistry> registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry interceptors) {
+        interceptors.addInterceptor(this).addPathPatterns("/api/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.ASYNC)
+            QueryCountInspector.reset();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        // no dispatch assincrono a thread nao e a que executou a requisicao
+        if (request.getDispatcherType() == DispatcherType.ASYNC)
+            return;
+        MeterRegistry meterRegistry = registry.getIfAvailable();
+        if (meterRegistry == null)
+            return;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String method = request.getMethod();
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        summaries.computeIfAbsent(method + " " + uri, key -> DistributionSummary.builder("library.db.statements")
+                        .description("Statements SQL executados por requisicao")
+                        .tag("method", method)
+                        .tag("uri", uri)
+                        .register(meterRegistry))
+                .record(QueryCountInspector.count());
+    }
+
+}
@@ -3,6 +3,10 @@ package com.springtdd.tddspringlbrary.api.resource;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springtdd.tddspringlbrary.api.entity.Book;
 import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookCursor;
+import com.springtdd.tddspringlbrary.api.resource.service.feed.BookChangeFeed;
+import com.springtdd.tddspringlbrary.api.resource.service.transfer.BookExporter;
+import com.springtdd.tddspringlbrary.api.resource.service.transfer.BookImporter;
 import com.springtdd.tddspringlbrary.api.service.BookService;
 import com.springtdd.tddspringlbrary.exceptions.BussinessException;
 import org.hamcrest.Matchers;
@@ -15,6 +19,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -26,8 +32,12 @@ import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilde
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -36,6 +46,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = BookController.class)
+@Import({ BookImporter.class, BookExporter.class })
 @AutoConfigureMockMvc
 public class BookControllerTest {
 
@@ -47,6 +58,9 @@ public class BookControllerTest {
     @MockBean
     BookService service;
 
+    @MockBean
+    BookChangeFeed changeFeed;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso.")
     public void createBookSuccessfully() throws Exception {
@@ -154,7 +168,7 @@ public class BookControllerTest {
     @DisplayName("Deve retornar not Found para um livro nao existente")
     public void deleteABook() throws Exception {
 
-        BDDMockito.when(service.getById(Mockito.anyLong())).thenReturn(Optional.of(Book.builder().id(12l).build()));
+        BDDMockito.when(service.deleteById(12l)).thenReturn(true);
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/" + 12l))
@@ -169,7 +183,7 @@ public class BookControllerTest {
     @DisplayName("Deve retornar resource not found quando não encontrar o livro para deleção")
     public void deleteInexistentBook() throws Exception {
         // @delete -> /api/book/12
-        BDDMockito.when(service.getById(Mockito.anyLong())).thenReturn(Optional.empty());
+        BDDMockito.when(service.deleteById(Mockito.anyLong())).thenReturn(false);
         // deve retornar resource not found
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .delete(BOOK_API.concat("/" + 12l))
@@ -187,9 +201,9 @@ public class BookControllerTest {
 
         BookDTO updatingDTO = BookDTO.builder().id(id).author("updatedAuthor").title("updatedTitle").isbn("123").build();
         String updatingJson = new ObjectMapper().writeValueAsString(updatingDTO);
-        Book oldBook = Book.builder().id(id).author("oldAuthor").title("oldTitle").isbn("123").build();
+        Book updatedBook = Book.builder().id(id).author("updatedAuthor").title("updatedTitle").isbn("123").build();
 
-        BDDMockito.when(service.getById(id)).thenReturn(Optional.of(oldBook));
+        BDDMockito.when(service.update(updatedBook)).thenReturn(Optional.of(updatedBook));
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + id))
@@ -215,7 +229,7 @@ public class BookControllerTest {
         BookDTO updatingDTO = BookDTO.builder().id(id).author("updatedAuthor").title("updatedTitle").isbn("123").build();
         String updatingJson = new ObjectMapper().writeValueAsString(updatingDTO);
 
-        BDDMockito.when(service.getById(id)).thenReturn(Optional.empty());
+        BDDMockito.when(service.update(Mockito.any(Book.class))).thenReturn(Optional.empty());
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders
                 .put(BOOK_API.concat("/" + id))
@@ -243,6 +257,7 @@ public class BookControllerTest {
 
         BDDMockito.given( service.find(Mockito.any(Book.class), Mockito.any(Pageable.class) ))
                 .willReturn(new PageImpl<Book>( Arrays.asList(book), PageRequest.of(0, 100), 1) );
+        BDDMockito.given( service.getLoanedIds(Arrays.asList(id)) ).willReturn(Collections.singleton(id));
 
         String queryString = String.format("?title=%s&author=%s&page=0&size=100", book.getTitle(), book.getAuthor());
 
@@ -254,6 +269,7 @@ public class BookControllerTest {
                 .perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].available").value(false))
                 .andExpect(jsonPath("totalElements").value(1))
                 .andExpect(jsonPath("pageable.pageSize").value(100))
                 .andExpect(jsonPath("pageable.pageNumber").value(0));
@@ -261,6 +277,190 @@ public class BookControllerTest {
 
     }
 
+    @Test
+    @DisplayName("Deve retornar 304 pela versao do livro quando o ETag nao mudou")
+    public void getBookByIdNotModified() throws Exception {
+        BDDMockito.given(service.getVersionById(12l)).willReturn(Optional.of(3l));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("/" + 12l))
+                .header("If-None-Match", "\"3\"")
+                .accept(MediaType.APPLICATION_JSON);
+
+        mvc
+                .perform(request)
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(content().string(""));
+        Mockito.verify(service, Mockito.never()).getById(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 para a mesma pagina de livros")
+    public void findBooksNotModified() throws Exception {
+        Book book = Book.builder().id(1l).title("titulo").author("autor").isbn("123").version(0l).build();
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 10), 1));
+
+        String eTag = mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10"))
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified());
+
+        book.setVersion(1l);
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10"))
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        // emprestar o livro tambem muda o ETag da pagina
+        book.setVersion(0l);
+        BDDMockito.given(service.getLoanedIds(Arrays.asList(1l))).willReturn(Collections.singleton(1l));
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10"))
+                        .header("If-None-Match", eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content[0].available").value(false));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em lote retornando o resultado de cada item")
+    public void importBooksInBatch() throws Exception {
+        BDDMockito.given(service.importBooks(Mockito.anyList())).willAnswer(invocation -> {
+            List<Book> books = invocation.getArgument(0);
+            books.get(0).setId(1l); // o segundo valido simula isbn duplicado
+            return books.subList(0, 1);
+        });
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(makeBookDTO()) + "\n"
+                + objectMapper.writeValueAsString(new BookDTO()) + "\n"
+                + objectMapper.writeValueAsString(makeBookDTO());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("batch"))
+                .contentType("application/x-ndjson")
+                .accept("application/x-ndjson")
+                .content(ndjson);
+
+        String[] lines = mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertThat(lines).hasSize(3);
+        assertThat(lines[0]).contains("\"status\":\"CREATED\"", "\"id\":1");
+        assertThat(lines[1]).contains("\"status\":\"INVALID\"");
+        assertThat(lines[2]).contains("\"status\":\"DUPLICATED\"");
+    }
+
+    @Test
+    @DisplayName("Deve salvar um a um quando o bloco falha e reportar linhas malformadas sem interromper")
+    public void importBooksFallbackOneByOne() throws Exception {
+        BDDMockito.given(service.importBooks(Mockito.anyList()))
+                .willThrow(new DataIntegrityViolationException("commit falhou"));
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willAnswer(invocation -> {
+            Book book = invocation.getArgument(0);
+            if (book.getIsbn().equals("2"))
+                throw new BussinessException("Isbn duplicado");
+            if (book.getIsbn().equals("3"))
+                throw new DataIntegrityViolationException("titulo muito longo");
+            return Book.builder().id(10l).isbn(book.getIsbn()).build();
+        });
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        String ndjson = objectMapper.writeValueAsString(BookDTO.builder().author("Autor").title("Titulo").isbn("1").build()) + "\n"
+                + "{\"isbn\": \n"
+                + objectMapper.writeValueAsString(BookDTO.builder().author("Autor").title("Titulo").isbn("2").build()) + "\n"
+                + objectMapper.writeValueAsString(BookDTO.builder().author("Autor").title("Titulo").isbn("3").build());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .post(BOOK_API.concat("batch"))
+                .contentType("application/x-ndjson")
+                .accept("application/x-ndjson")
+                .content(ndjson);
+
+        String[] lines = mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString().split("\n");
+
+        assertThat(lines).hasSize(4);
+        assertThat(lines[0]).contains("\"status\":\"CREATED\"", "\"id\":10");
+        assertThat(lines[1]).contains("\"index\":1", "\"status\":\"INVALID\"", "Json invalido");
+        assertThat(lines[2]).contains("\"status\":\"DUPLICATED\"");
+        assertThat(lines[3]).contains("\"status\":\"FAILED\"", "titulo muito longo");
+    }
+
+    @Test
+    @DisplayName("Deve paginar livros por cursor sem contar o total")
+    public void findBooksByCursor() throws Exception {
+        Book first = Book.builder().id(1l).title("A").author("Autor").isbn("1").build();
+        Book second = Book.builder().id(2l).title("B").author("Autor").isbn("2").build();
+        Book third = Book.builder().id(3l).title("C").author("Autor").isbn("3").build();
+
+        BDDMockito.given(service.findAfter(Mockito.any(Book.class), Mockito.any(BookCursor.class), Mockito.eq(3)))
+                .willReturn(Arrays.asList(first, second, third));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("?cursor=&sort=title&size=2"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        String next = BookCursor.after(BookCursor.TITLE, 2l, "B").encode();
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(2)))
+                .andExpect(jsonPath("next").value(next))
+                .andExpect(jsonPath("totalElements").doesNotExist());
+
+        Mockito.verify(service, Mockito.never()).find(Mockito.any(Book.class), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo em CSV")
+    public void exportBooksAsCsv() throws Exception {
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> consumer = invocation.getArgument(0);
+            consumer.accept(Book.builder().id(1l).title("Titulo, com virgula").author("Autor").isbn("1").build());
+            consumer.accept(Book.builder().id(2l).title("Outro").author("Autor").isbn("2").build());
+            return null;
+        }).given(service).exportBooks(Mockito.any());
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders
+                .get(BOOK_API.concat("export?format=csv"));
+
+        mvc
+                .perform(request)
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(content().string("id,title,author,isbn\n"
+                        + "1,\"Titulo, com virgula\",Autor,1\n"
+                        + "2,Outro,Autor,2\n"));
+    }
+
+    @Test
+    @DisplayName("Deve abrir o feed de alteracoes retomando pelo Last-Event-ID")
+    public void subscribeToChanges() throws Exception {
+        BDDMockito.given(changeFeed.subscribe(Mockito.any(), Mockito.eq("run.3"))).willReturn(() -> {});
+
+        mvc
+                .perform(MockMvcRequestBuilders.get(BOOK_API.concat("changes"))
+                        .header("Last-Event-ID", "run.3")
+                        .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted());
+
+        Mockito.verify(changeFeed).subscribe(Mockito.any(), Mockito.eq("run.3"));
+    }
+
     public BookDTO makeBookDTO() {
         return BookDTO.builder().author("Autor").title("Titulo").isbn("123").build();
     }
@@ -4,7 +4,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.springtdd.tddspringlbrary.api.entity.Book;
 import com.springtdd.tddspringlbrary.api.entity.Loan;
 import com.springtdd.tddspringlbrary.api.resource.dto.LoanDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.LoanReturnBatchDTO;
+import com.springtdd.tddspringlbrary.api.resource.dto.ReturnedLoanDTO;
 import com.springtdd.tddspringlbrary.api.service.BookService;
+import com.springtdd.tddspringlbrary.api.service.LoanReturnStatus;
 import com.springtdd.tddspringlbrary.api.service.LoanService;
 import com.springtdd.tddspringlbrary.exceptions.BussinessException;
 import org.hamcrest.Matchers;
@@ -24,6 +27,9 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -113,4 +119,65 @@ public class LoanControllerTest {
                 .andExpect(jsonPath("erros", Matchers.hasSize(1)))
                 .andExpect(jsonPath("erros[0]").value("Book already borrowed"));
     }
+
+    @Test
+    @DisplayName("Should return a loan")
+    public void returnBook() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(ReturnedLoanDTO.builder().returned(true).build());
+        BDDMockito.given(loanService.returnLoan(1l)).willReturn(LoanReturnStatus.RETURNED);
+
+        mvc.perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Should return 404 when returning an inexistent loan")
+    public void returnInexistentBook() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(ReturnedLoanDTO.builder().returned(true).build());
+        BDDMockito.given(loanService.returnLoan(1l)).willReturn(LoanReturnStatus.NOT_FOUND);
+
+        mvc.perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/1"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Should return loans in bulk with one result per id")
+    public void returnBooksInBulk() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(LoanReturnBatchDTO.builder().loanIds(List.of(1l, 2l, 3l)).build());
+        Map<Long, LoanReturnStatus> results = new LinkedHashMap<>();
+        results.put(1l, LoanReturnStatus.RETURNED);
+        results.put(2l, LoanReturnStatus.ALREADY_RETURNED);
+        results.put(3l, LoanReturnStatus.NOT_FOUND);
+        BDDMockito.given(loanService.returnLoans(List.of(1l, 2l, 3l))).willReturn(results);
+
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", Matchers.hasSize(3)))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[0].status").value("RETURNED"))
+                .andExpect(jsonPath("$[1].status").value("ALREADY_RETURNED"))
+                .andExpect(jsonPath("$[2].status").value("NOT_FOUND"));
+    }
+
+    @Test
+    @DisplayName("Should reject an empty bulk return")
+    public void returnBooksInBulkEmpty() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(LoanReturnBatchDTO.builder().loanIds(List.of()).build());
+
+        mvc.perform(MockMvcRequestBuilders.post(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isBadRequest());
+        Mockito.verify(loanService, Mockito.never()).returnLoans(Mockito.anyList());
+    }
 }
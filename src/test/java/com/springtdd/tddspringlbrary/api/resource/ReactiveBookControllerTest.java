@@ -0,0 +1,119 @@
+package com.springtdd.tddspringlbrary.api.resource;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookDTO;
+import com.springtdd.tddspringlbrary.api.service.ReactiveBookService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.BDDMockito;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("reactive")
+@WebFluxTest(controllers = ReactiveBookController.class)
+public class ReactiveBookControllerTest {
+
+    static String BOOK_API = "/api/books";
+
+    @Autowired
+    WebTestClient client;
+
+    @MockBean
+    ReactiveBookService service;
+
+    @Test
+    @DisplayName("Deve criar um livro com sucesso")
+    public void createBook() {
+        BookDTO dto = BookDTO.builder().author("William").title("Biografia").isbn("123").build();
+        Book savedBook = Book.builder().id(1l).author("William").title("Biografia").isbn("123").build();
+        BDDMockito.given(service.save(Mockito.any(Book.class))).willReturn(Mono.just(savedBook));
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("id").isEqualTo(1)
+                .jsonPath("isbn").isEqualTo("123");
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro de negocio para isbn duplicado")
+    public void duplicatedIsbn() {
+        BookDTO dto = BookDTO.builder().author("William").title("Biografia").isbn("123").build();
+        BDDMockito.given(service.save(Mockito.any(Book.class)))
+                .willReturn(Mono.error(new BussinessException("Isbn duplicado")));
+
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(dto)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("erros.length()").isEqualTo(1)
+                .jsonPath("erros[0]").isEqualTo("Isbn duplicado");
+    }
+
+    @Test
+    @DisplayName("Deve retornar erros se receber um livro invalido")
+    public void invalidBody() {
+        client.post().uri(BOOK_API)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new BookDTO())
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody()
+                .jsonPath("erros.length()").isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Deve retornar not found para um livro inexistente")
+    public void returnNotFound() {
+        BDDMockito.given(service.getById(12l)).willReturn(Mono.empty());
+
+        client.get().uri(BOOK_API + "/12")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro pelas linhas afetadas, sem carrega-lo antes")
+    public void deleteBook() {
+        BDDMockito.given(service.deleteById(11l)).willReturn(Mono.just(true));
+        BDDMockito.given(service.deleteById(12l)).willReturn(Mono.just(false));
+
+        client.delete().uri(BOOK_API + "/11")
+                .exchange()
+                .expectStatus().isNoContent();
+        client.delete().uri(BOOK_API + "/12")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Deve transmitir os livros filtrados")
+    public void filterBooks() {
+        Book book = Book.builder().id(1l).author("Autor").title("Titulo").isbn("123").build();
+        BDDMockito.given(service.find(Mockito.any(Book.class), Mockito.eq(0l), Mockito.eq(10)))
+                .willReturn(Flux.just(book));
+
+        client.get().uri(BOOK_API + "?title=Tit&page=0&size=10")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BookDTO.class).hasSize(1);
+    }
+
+}
@@ -1,14 +1,25 @@
 package com.springtdd.tddspringlbrary.api.resource.model.repository;
 
 import com.springtdd.tddspringlbrary.api.entity.Book;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -23,6 +34,9 @@ public class BookRepositoryTest {
     @Autowired
     BookRepository repository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Test
     @DisplayName("Deve retornar verdadeiro quando existir um livro com isbn já utilizado por outro")
     public void existsIsbn() {
@@ -63,4 +77,115 @@ public class BookRepositoryTest {
         assertThat(deletedBook).isNull();
     }
 
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn")
+    public void findByIsbn() {
+        Book book = Book.builder().isbn("123").title("titulo").author("autor").build();
+        entityManager.persist(book);
+
+        Optional<Book> foundBook = repository.findByIsbn("123");
+
+        assertThat(foundBook).isPresent();
+        assertThat(foundBook.get().getId()).isEqualTo(book.getId());
+    }
+
+    @Test
+    @DisplayName("Deve paginar por keyset ordenando por titulo")
+    public void findAfterOrderedByTitle() {
+        entityManager.persist(Book.builder().isbn("1").title("Beta").author("autor").build());
+        entityManager.persist(Book.builder().isbn("2").title("Alfa").author("autor").build());
+        entityManager.persist(Book.builder().isbn("3").title("Alfa").author("outro").build());
+        entityManager.persist(Book.builder().isbn("4").title("Gama").author("autor").build());
+        Book filter = Book.builder().author("AUT").build();
+
+        List<Book> firstPage = repository.findAfter(filter, BookCursor.first(BookCursor.TITLE), 2);
+        Book last = firstPage.get(1);
+        List<Book> secondPage = repository.findAfter(filter, BookCursor.after(BookCursor.TITLE, last.getId(), last.getTitle()), 2);
+
+        assertThat(firstPage).extracting(Book::getIsbn).containsExactly("2", "1");
+        assertThat(secondPage).extracting(Book::getIsbn).containsExactly("4");
+    }
+
+    @Test
+    @DisplayName("Deve obter o livro do cache de segundo nivel apos a primeira leitura")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void findByIdFromSecondLevelCache() {
+        // o cache de segundo nivel so recebe o livro depois do commit, entao o teste nao roda na transacao do @DataJpaTest
+        Book book = repository.save(Book.builder().isbn("123").title("titulo").author("autor").build());
+        try {
+            entityManagerFactory.getCache().evict(Book.class);
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            findInNewEntityManager(book.getId());
+            Book cachedBook = findInNewEntityManager(book.getId());
+
+            assertThat(cachedBook).isNotNull();
+            assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getMissCount()).isEqualTo(1);
+            assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getHitCount()).isEqualTo(1);
+        } finally {
+            repository.deleteById(book.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve atualizar um livro sem tirar os demais do cache de segundo nivel")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void updateKeepsOtherBooksCached() {
+        Book book = repository.save(Book.builder().isbn("123").title("titulo").author("autor").build());
+        Book other = repository.save(Book.builder().isbn("456").title("outro").author("autor").build());
+        try {
+            entityManagerFactory.getCache().evict(Book.class);
+            findInNewEntityManager(book.getId());
+            findInNewEntityManager(other.getId());
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+
+            EntityManager manager = entityManagerFactory.createEntityManager();
+            try {
+                manager.getTransaction().begin();
+                manager.find(Book.class, book.getId()).setTitle("novo titulo");
+                manager.getTransaction().commit();
+            } finally {
+                manager.close();
+            }
+            Book updatedBook = findInNewEntityManager(book.getId());
+            findInNewEntityManager(other.getId());
+
+            assertThat(updatedBook.getTitle()).isEqualTo("novo titulo");
+            assertThat(updatedBook.getVersion()).isEqualTo(1l);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            assertThat(statistics.getDomainDataRegionStatistics(Book.CACHE_REGION).getMissCount()).isZero();
+        } finally {
+            repository.deleteById(book.getId());
+            repository.deleteById(other.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve paginar livros filtrados sem coloca-los no contexto de persistencia")
+    public void findPageAsProjection() {
+        entityManager.persist(Book.builder().isbn("1").title("Beta").author("autor").build());
+        entityManager.persist(Book.builder().isbn("2").title("Alfa").author("autor").build());
+        entityManager.persist(Book.builder().isbn("3").title("Gama").author("outro").build());
+        entityManager.flush();
+        entityManager.clear();
+
+        Page<Book> page = repository.findPage(Book.builder().author("AUT").build(), PageRequest.of(0, 1));
+
+        assertThat(page.getTotalElements()).isEqualTo(2);
+        assertThat(page.getContent()).extracting(Book::getIsbn).containsExactly("1");
+        assertThat(page.getContent().get(0).getVersion()).isZero();
+        assertThat(entityManager.getEntityManager().contains(page.getContent().get(0))).isFalse();
+    }
+
+    private Book findInNewEntityManager(Long id) {
+        EntityManager manager = entityManagerFactory.createEntityManager();
+        try {
+            return manager.find(Book.class, id);
+        } finally {
+            manager.close();
+        }
+    }
+
 }
@@ -0,0 +1,97 @@
+package com.springtdd.tddspringlbrary.api.resource.model.repository;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanRepositoryTest {
+
+    @Autowired
+    TestEntityManager entityManager;
+
+    @Autowired
+    LoanRepository repository;
+
+    @Test
+    @DisplayName("Deve indicar emprestimo ativo apenas para livro nao devolvido")
+    public void existsActiveLoanForBook() {
+        Book borrowed = Book.builder().isbn("123").title("titulo").author("autor").build();
+        Book returned = Book.builder().isbn("321").title("titulo").author("autor").build();
+        entityManager.persist(borrowed);
+        entityManager.persist(returned);
+        entityManager.persist(Loan.builder().book(borrowed).customer("Fulano").loanDate(LocalDate.now()).returned(false).build());
+        entityManager.persist(Loan.builder().book(returned).customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+
+        assertThat(repository.existsByBookIdAndReturnedFalse(borrowed.getId())).isTrue();
+        assertThat(repository.existsByBookIdAndReturnedFalse(returned.getId())).isFalse();
+        assertThat(repository.findLoanedBookIds(List.of(borrowed.getId(), returned.getId())))
+                .containsExactly(borrowed.getId());
+        try (Stream<Long> loanedBookIds = repository.streamLoanedBookIds()) {
+            assertThat(loanedBookIds).containsExactly(borrowed.getId());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve listar por keyset e marcar como atrasados apenas os nao devolvidos vencidos")
+    public void findAndMarkOverdueLoans() {
+        LocalDate today = LocalDate.now();
+        Loan[] loans = new Loan[4];
+        for (int i = 0; i < loans.length; i++) {
+            Book book = entityManager.persist(Book.builder().isbn("isbn-" + i).title("titulo").author("autor").build());
+            loans[i] = entityManager.persist(Loan.builder().book(book).customer("Fulano")
+                    .loanDate(i == 3 ? today : today.minusDays(30)).returned(i == 1).build());
+        }
+
+        List<Long> firstChunk = repository.findUnreturnedIdsAfter(0l, today.minusDays(14), PageRequest.of(0, 1));
+        List<Long> secondChunk = repository.findUnreturnedIdsAfter(firstChunk.get(0), today.minusDays(14), PageRequest.of(0, 1));
+        int marked = repository.markOverdue(List.of(firstChunk.get(0), secondChunk.get(0), loans[1].getId()));
+        entityManager.clear();
+
+        assertThat(firstChunk).containsExactly(loans[0].getId());
+        assertThat(secondChunk).containsExactly(loans[2].getId());
+        assertThat(marked).isEqualTo(2);
+        assertThat(entityManager.find(Loan.class, loans[2].getId()).getOverdue()).isTrue();
+        assertThat(entityManager.find(Loan.class, loans[1].getId()).getOverdue()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve devolver com um UPDATE e liberar o livro para novo emprestimo")
+    public void markReturnedLoans() {
+        Book book = entityManager.persist(Book.builder().isbn("123").title("titulo").author("autor").build());
+        Loan loan = entityManager.persist(Loan.builder().book(book).activeBookId(book.getId()).customer("Fulano")
+                .loanDate(LocalDate.now()).returned(false).build());
+
+        List<LoanReturnState> states = repository.findReturnStates(List.of(loan.getId(), 99l));
+        int first = repository.markReturned(List.of(loan.getId()));
+        int second = repository.markReturned(List.of(loan.getId()));
+        entityManager.clear();
+
+        assertThat(states).hasSize(1);
+        assertThat(states.get(0).getReturned()).isFalse();
+        assertThat(states.get(0).getBookId()).isEqualTo(book.getId());
+        assertThat(first).isEqualTo(1);
+        assertThat(second).isZero();
+        Loan returned = entityManager.find(Loan.class, loan.getId());
+        assertThat(returned.getReturned()).isTrue();
+        assertThat(returned.getActiveBookId()).isNull();
+        assertThat(repository.existsByBookIdAndReturnedFalse(book.getId())).isFalse();
+    }
+
+}
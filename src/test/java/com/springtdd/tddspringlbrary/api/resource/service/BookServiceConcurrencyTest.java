@@ -0,0 +1,70 @@
+package com.springtdd.tddspringlbrary.api.resource.service;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import com.springtdd.tddspringlbrary.api.service.BookService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Estresse do save contra o H2; a vazao fica no BookControllerBenchmark.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class BookServiceConcurrencyTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Test
+    @DisplayName("Deve cadastrar um unico livro quando varias threads salvam o mesmo isbn")
+    public void onlyOneBookForSameIsbn() throws Exception {
+        int attempts = 200;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ConcurrentTasks.run(ConcurrentTasks.threads(), attempts, i -> {
+            try {
+                bookService.save(newBook("concurrent-same"));
+                created.incrementAndGet();
+            } catch (BussinessException e) {
+                assertThat(e).hasMessage("Isbn duplicado");
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(attempts - 1);
+        assertThat(bookRepository.findByIsbn("concurrent-same")).isPresent();
+    }
+
+    @Test
+    @DisplayName("Deve cadastrar livros com isbns diferentes em paralelo sem perder nenhum")
+    public void saveDifferentIsbnsInParallel() throws Exception {
+        int books = 500;
+
+        ConcurrentTasks.run(ConcurrentTasks.threads(), books, i -> bookService.save(newBook("parallel-" + i)));
+
+        List<String> isbns = IntStream.range(0, books).mapToObj(i -> "parallel-" + i).collect(Collectors.toList());
+        assertThat(bookRepository.findExistingIsbns(isbns)).hasSize(books);
+    }
+
+    private Book newBook(String isbn) {
+        return Book.builder().title("titulo").author("autor").isbn(isbn).build();
+    }
+
+}
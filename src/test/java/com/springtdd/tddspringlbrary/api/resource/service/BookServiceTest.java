@@ -2,9 +2,17 @@ package com.springtdd.tddspringlbrary.api.resource.service;
 
 import com.springtdd.tddspringlbrary.api.entity.Book;
 import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import com.springtdd.tddspringlbrary.api.resource.service.cache.BookIsbnCache;
+import com.springtdd.tddspringlbrary.api.resource.service.feed.BookChangeFeed;
+import com.springtdd.tddspringlbrary.api.resource.service.index.BookSearchIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.index.IsbnIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.index.LoanedBookIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.journal.ChangeJournal;
 import com.springtdd.tddspringlbrary.api.resource.service.impl.BookServiceImpl;
 import com.springtdd.tddspringlbrary.api.service.BookService;
 import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import com.springtdd.tddspringlbrary.metrics.BookMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,13 +20,18 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.*;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -28,12 +41,26 @@ public class BookServiceTest {
 
     BookService service;
 
+    IsbnIndex isbnIndex;
+
+    ChangeJournal journal;
+
+    BookChangeFeed changeFeed;
+
+    BookSearchIndex searchIndex;
+
     @MockBean
     BookRepository repository; // apenas usamos o MockBean para o repository, pois estamos testando a classe de service e nao o repository em si
 
     @BeforeEach
     public void setUp() {
-        this.service = new BookServiceImpl(repository);
+        this.isbnIndex = new IsbnIndex(repository); // nao carregado: sempre consulta o banco
+        this.journal = Mockito.mock(ChangeJournal.class);
+        this.changeFeed = Mockito.mock(BookChangeFeed.class);
+        this.searchIndex = Mockito.mock(BookSearchIndex.class);
+        this.service = new BookServiceImpl(repository, isbnIndex,
+                new BookIsbnCache(100, Duration.ofMinutes(1)), searchIndex,
+                Mockito.mock(LoanedBookIndex.class), journal, changeFeed, new BookMetrics(new SimpleMeterRegistry()));
     }
 
     @Test
@@ -42,7 +69,7 @@ public class BookServiceTest {
         // cenario
         Book book = makeValidBook();
         Book bookWithId = Book.builder().id(1l).isbn("1234").title("titulo").author("oi").build();
-        Mockito.when(repository.save(book)).thenReturn(bookWithId);
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(bookWithId);
 
         // execucao
         Book savedBook = service.save(book);
@@ -52,6 +79,8 @@ public class BookServiceTest {
         assertThat(savedBook.getTitle()).isEqualTo(book.getTitle());
         assertThat(savedBook.getAuthor()).isEqualTo(book.getAuthor());
         assertThat(savedBook.getIsbn()).isEqualTo(book.getIsbn());
+        Mockito.verify(journal).bookSaved(bookWithId);
+        Mockito.verify(changeFeed).bookSaved(bookWithId);
     }
 
     @Test
@@ -60,7 +89,7 @@ public class BookServiceTest {
         // cenario
         String errorMessage = "Isbn duplicado";
         Book book = makeValidBook();
-        Mockito.when(repository.existsByIsbn(Mockito.anyString())).thenReturn(true);
+        Mockito.when(repository.saveAndFlush(book)).thenThrow(new DataIntegrityViolationException("ux_book_isbn"));
         // execucao
         Throwable exception = Assertions.catchThrowable(() -> service.save(book));
         // checagem
@@ -68,10 +97,24 @@ public class BookServiceTest {
                 .isInstanceOf(BussinessException.class)
                 .hasMessage(errorMessage);
 
-        Mockito.verify(repository, Mockito.never()).save(book);
+        Mockito.verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
 
     }
 
+    @Test
+    @DisplayName("Deve salvar sem consultar existsByIsbn e registrar o isbn no indice")
+    public void saveWithoutExistsQuery() {
+        Book book = makeValidBook();
+        Mockito.when(repository.streamAllIsbns()).thenReturn(Stream.of("999"));
+        Mockito.when(repository.saveAndFlush(book)).thenReturn(book);
+        isbnIndex.load();
+
+        service.save(book);
+
+        Mockito.verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        assertThat(isbnIndex.mightContain(book.getIsbn())).isTrue();
+    }
+
     @Test
     @DisplayName("Deve retornar um livro pelo id")
     public void getBookById() {
@@ -100,7 +143,7 @@ public class BookServiceTest {
     public void errorWhenUpdating() {
         Book book = new Book();
         org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> service.update(book));
-        Mockito.verify(repository, Mockito.never()).save(book);
+        Mockito.verify(repository, Mockito.never()).flush();
     }
 
     @Test
@@ -110,23 +153,106 @@ public class BookServiceTest {
         long id = 11l;
 
         // livro a atualizar
-        Book updatingBook = Book.builder().id(id).build();
+        Book updatingBook = makeValidBook();
+        updatingBook.setId(id);
 
         //simulacao
-        Book updatedBook = makeValidBook();
-        updatedBook.setId(id);
-
-        Mockito.when(repository.save(updatingBook)).thenReturn(updatedBook);
+        Book storedBook = Book.builder().id(id).title("antigo").author("antigo").isbn("4321").version(2l).build();
+        Mockito.when(repository.findById(id)).thenReturn(Optional.of(storedBook));
+        // o flush do UPDATE incrementa a versao da entidade gerenciada
+        Mockito.doAnswer(invocation -> {
+            storedBook.setVersion(3l);
+            return null;
+        }).when(repository).flush();
 
         // execucao
-        Book book = service.update(updatingBook);
+        Optional<Book> book = service.update(updatingBook);
 
         //verificacoes
-        assertThat(book.getId()).isEqualTo(updatedBook.getId());
-        assertThat(book.getTitle()).isEqualTo(updatedBook.getTitle());
-        assertThat(book.getIsbn()).isEqualTo(updatedBook.getIsbn());
-        assertThat(book.getAuthor()).isEqualTo(updatedBook.getAuthor());
+        assertThat(book).isPresent();
+        assertThat(book.get().getId()).isEqualTo(id);
+        assertThat(book.get().getTitle()).isEqualTo(updatingBook.getTitle());
+        assertThat(book.get().getIsbn()).isEqualTo(updatingBook.getIsbn());
+        assertThat(book.get().getAuthor()).isEqualTo(updatingBook.getAuthor());
+        assertThat(book.get().getVersion()).isEqualTo(3l);
+        Mockito.verify(journal).bookUpdated(Mockito.argThat(journaled -> journaled.getVersion() == 3l));
+        Mockito.verify(repository, Mockito.never()).findVersionById(id);
+        Mockito.verify(repository, Mockito.never()).existsByIsbn(Mockito.anyString());
+    }
+
+    @Test
+    @DisplayName("Deve gravar a atualizacao no diario apenas depois do commit")
+    public void updateJournalsAfterCommit() {
+        Book book = makeValidBook();
+        book.setId(11l);
+        Mockito.when(repository.findById(11l)).thenReturn(Optional.of(book));
 
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.update(book);
+            Mockito.verify(journal, Mockito.never()).bookUpdated(book);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            Mockito.verify(journal).bookUpdated(book);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio ao atualizar um livro que nao existe")
+    public void updateAnInexistentBook() {
+        Book book = makeValidBook();
+        book.setId(11l);
+        Mockito.when(repository.findById(11l)).thenReturn(Optional.empty());
+
+        Optional<Book> updated = service.update(book);
+
+        assertThat(updated).isEmpty();
+        Mockito.verify(repository, Mockito.never()).flush();
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro de negocio ao atualizar para um isbn ja utilizado")
+    public void updateWithDuplicatedIsbn() {
+        Book book = makeValidBook();
+        book.setId(11l);
+        Mockito.when(repository.findById(11l)).thenReturn(Optional.of(makeValidBook()));
+        Mockito.doThrow(new DataIntegrityViolationException("ux_book_isbn")).when(repository).flush();
+
+        Throwable exception = Assertions.catchThrowable(() -> service.update(book));
+
+        assertThat(exception).isInstanceOf(BussinessException.class).hasMessage("Isbn duplicado");
+    }
+
+    @Test
+    @DisplayName("Deve deletar um livro")
+    public void deleteBook() {
+        Book book = makeValidBook();
+        book.setId(11l);
+        Mockito.when(repository.findById(11l)).thenReturn(Optional.of(book));
+
+        boolean deleted = service.deleteById(11l);
+
+        assertThat(deleted).isTrue();
+        Mockito.verify(repository).delete(book);
+        Mockito.verify(journal).bookDeleted(11l);
+    }
+
+    @Test
+    @DisplayName("Deve retornar false ao deletar um livro que nao existe")
+    public void deleteInexistentBook() {
+        Mockito.when(repository.findById(11l)).thenReturn(Optional.empty());
+
+        assertThat(service.deleteById(11l)).isFalse();
+        Mockito.verify(repository, Mockito.never()).delete(Mockito.any());
+    }
+
+    @Test
+    @DisplayName("Deve ocorrer um erro ao tentar deletar um livro sem id")
+    public void errorWhenDeleting() {
+        org.junit.jupiter.api.Assertions.assertThrows(IllegalArgumentException.class, () -> service.deleteById(null));
+        Mockito.verify(repository, Mockito.never()).delete(Mockito.any());
     }
 
     @Test
@@ -135,7 +261,7 @@ public class BookServiceTest {
         // cenario
         Book book = makeValidBook();
         Page<Book> pageResult = new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100),1);
-        Mockito.when(repository.findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class))).thenReturn(pageResult);
+        Mockito.when(repository.findPage(Mockito.any(Book.class), Mockito.any(PageRequest.class))).thenReturn(pageResult);
         List<Book> list = Arrays.asList(book);
         PageRequest pageRequest = PageRequest.of(0, 10);
         Page<Book> result = service.find(book, pageRequest);
@@ -147,6 +273,77 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageSize()).isEqualTo(100);
     }
 
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn usando o cache a partir da segunda consulta")
+    public void getBookByIsbn() {
+        String isbn = "1234";
+        Book book = makeValidBook();
+        book.setId(1l);
+        Mockito.when(repository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+
+        Optional<Book> first = service.getBookByIsbn(isbn);
+        Optional<Book> second = service.getBookByIsbn(isbn);
+
+        assertThat(first).contains(book);
+        assertThat(second).contains(book);
+        Mockito.verify(repository, Mockito.times(1)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco novamente apos atualizar o livro")
+    public void getBookByIsbnAfterUpdate() {
+        String isbn = "1234";
+        Book book = makeValidBook();
+        book.setId(1l);
+        Mockito.when(repository.findByIsbn(isbn)).thenReturn(Optional.of(book));
+        Mockito.when(repository.findById(1l)).thenReturn(Optional.of(book));
+
+        service.getBookByIsbn(isbn);
+        service.update(book);
+        service.getBookByIsbn(isbn);
+
+        Mockito.verify(repository, Mockito.times(2)).findByIsbn(isbn);
+    }
+
+    @Test
+    @DisplayName("Deve indexar o lote importado apenas depois do commit")
+    public void importBooksIndexesAfterCommit() {
+        Book book = makeValidBook();
+        Mockito.when(repository.findExistingIsbns(Mockito.anySet())).thenReturn(List.of());
+        Mockito.when(repository.saveAll(List.of(book))).thenReturn(List.of(book));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.importBooks(List.of(book));
+            Mockito.verify(searchIndex, Mockito.never()).index(book);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            Mockito.verify(searchIndex).index(book);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve gravar o lote importado no diario apenas depois do commit")
+    public void importBooksJournalsAfterCommit() {
+        Book book = makeValidBook();
+        book.setId(1l);
+        Mockito.when(repository.findExistingIsbns(Mockito.anySet())).thenReturn(List.of());
+        Mockito.when(repository.saveAll(List.of(book))).thenReturn(List.of(book));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.importBooks(List.of(book));
+            Mockito.verify(journal, Mockito.never()).bookSaved(book);
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            Mockito.verify(journal).bookSaved(book);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     public Book makeValidBook() {
         Book book = Book.builder().isbn("1234").title("titulo").author("oi").build();
         return book;
@@ -0,0 +1,80 @@
+package com.springtdd.tddspringlbrary.api.resource.service;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import com.springtdd.tddspringlbrary.api.service.LoanService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Estresse do LoanService contra o H2; a vazao fica no LoanControllerBenchmark.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class LoanServiceConcurrencyTest {
+
+    @Autowired
+    LoanService loanService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @DisplayName("Deve permitir um unico emprestimo ativo quando varias threads emprestam o mesmo livro")
+    public void onlyOneActiveLoanForSameIsbn() throws Exception {
+        Book book = bookRepository.save(Book.builder().title("titulo").author("autor").isbn("stress-same").build());
+        int attempts = 200;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        ConcurrentTasks.run(ConcurrentTasks.threads(), attempts, i -> {
+            try {
+                loanService.save(newLoan(book, "cliente-" + i));
+                created.incrementAndGet();
+            } catch (BussinessException e) {
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertThat(created.get()).isEqualTo(1);
+        assertThat(rejected.get()).isEqualTo(attempts - 1);
+        assertThat(loanRepository.existsByBookIdAndReturnedFalse(book.getId())).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve emprestar livros diferentes em paralelo sem perder nenhum emprestimo")
+    public void loansForDifferentIsbnsRunInParallel() throws Exception {
+        int loans = 500;
+        List<Book> books = new ArrayList<>(loans);
+        for (int i = 0; i < loans; i++)
+            books.add(Book.builder().title("titulo").author("autor").isbn("stress-" + i).build());
+        List<Book> savedBooks = bookRepository.saveAll(books);
+
+        ConcurrentTasks.run(ConcurrentTasks.threads(), loans, i -> loanService.save(newLoan(savedBooks.get(i), "cliente")));
+
+        List<Long> bookIds = savedBooks.stream().map(Book::getId).collect(Collectors.toList());
+        assertThat(loanRepository.findLoanedBookIds(bookIds)).hasSize(loans);
+    }
+
+    private Loan newLoan(Book book, String customer) {
+        return Loan.builder().book(book).customer(customer).loanDate(LocalDate.now()).returned(false).build();
+    }
+
+}
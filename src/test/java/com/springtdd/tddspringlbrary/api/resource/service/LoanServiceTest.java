@@ -0,0 +1,176 @@
+package com.springtdd.tddspringlbrary.api.resource.service;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanReturnState;
+import com.springtdd.tddspringlbrary.api.resource.service.impl.LoanServiceImpl;
+import com.springtdd.tddspringlbrary.api.resource.service.index.LoanedBookIndex;
+import com.springtdd.tddspringlbrary.api.resource.service.journal.ChangeJournal;
+import com.springtdd.tddspringlbrary.api.service.LoanReturnStatus;
+import com.springtdd.tddspringlbrary.api.service.LoanService;
+import com.springtdd.tddspringlbrary.exceptions.BussinessException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanServiceTest {
+
+    LoanService service;
+
+    LoanedBookIndex loanedBooks;
+
+    ChangeJournal journal;
+
+    @MockBean
+    LoanRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        this.loanedBooks = new LoanedBookIndex(repository); // nao carregado: sempre consulta o banco
+        this.journal = Mockito.mock(ChangeJournal.class);
+        this.service = new LoanServiceImpl(repository, loanedBooks, journal, 16, 2);
+    }
+
+    @Test
+    @DisplayName("Deve salvar um emprestimo")
+    public void saveLoan() {
+        Loan loan = makeLoan();
+        Loan savedLoan = makeLoan();
+        savedLoan.setId(1l);
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1l)).thenReturn(false);
+        Mockito.when(repository.saveAndFlush(loan)).thenReturn(savedLoan);
+
+        Loan result = service.save(loan);
+
+        assertThat(result.getId()).isEqualTo(1l);
+        assertThat(result.getCustomer()).isEqualTo(loan.getCustomer());
+        assertThat(loan.getActiveBookId()).isEqualTo(1l);
+        assertThat(loanedBooks.size()).isEqualTo(1);
+        Mockito.verify(journal).loanSaved(savedLoan);
+    }
+
+    @Test
+    @DisplayName("Deve pular a consulta de emprestimo ativo quando o bitmap descarta o livro")
+    public void saveLoanSkippingExistsWhenBitmapIsLoaded() {
+        Mockito.when(repository.streamLoanedBookIds()).thenReturn(Stream.of(2l));
+        loanedBooks.load();
+        Loan loan = makeLoan();
+        Mockito.when(repository.saveAndFlush(loan)).thenReturn(loan);
+
+        service.save(loan);
+
+        Mockito.verify(repository, Mockito.never()).existsByBookIdAndReturnedFalse(1l);
+        assertThat(loanedBooks.mightBeLoaned(1l)).isTrue();
+        assertThat(loanedBooks.mightBeLoaned(3l)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve lancar erro de negocio ao emprestar um livro ja emprestado")
+    public void saveLoanOfBorrowedBook() {
+        Loan loan = makeLoan();
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1l)).thenReturn(true);
+
+        Throwable exception = Assertions.catchThrowable(() -> service.save(loan));
+
+        assertThat(exception)
+                .isInstanceOf(BussinessException.class)
+                .hasMessage("Book already borrowed");
+        Mockito.verify(repository, Mockito.never()).saveAndFlush(loan);
+        Mockito.verify(journal, Mockito.never()).loanSaved(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve traduzir a violacao do indice de emprestimo ativo em erro de negocio")
+    public void saveLoanRejectedByUniqueIndex() {
+        Loan loan = makeLoan();
+        Mockito.when(repository.existsByBookIdAndReturnedFalse(1l)).thenReturn(false);
+        Mockito.when(repository.saveAndFlush(loan)).thenThrow(new DataIntegrityViolationException("ux"));
+
+        Throwable exception = Assertions.catchThrowable(() -> service.save(loan));
+
+        assertThat(exception)
+                .isInstanceOf(BussinessException.class)
+                .hasMessage("Book already borrowed");
+    }
+
+    @Test
+    @DisplayName("Deve devolver em lotes, com um UPDATE apenas para os emprestimos pendentes")
+    public void returnLoansInBatches() {
+        loanedBooks.add(10l);
+        loanedBooks.add(40l);
+        Mockito.when(repository.findReturnStates(List.of(1l, 2l)))
+                .thenReturn(List.of(state(1l, 10l, false), state(2l, 20l, true)));
+        Mockito.when(repository.findReturnStates(List.of(3l, 4l)))
+                .thenReturn(List.of(state(4l, 40l, false)));
+
+        Map<Long, LoanReturnStatus> result = service.returnLoans(List.of(1l, 2l, 1l, 3l, 4l));
+
+        assertThat(result).containsExactly(
+                Map.entry(1l, LoanReturnStatus.RETURNED),
+                Map.entry(2l, LoanReturnStatus.ALREADY_RETURNED),
+                Map.entry(3l, LoanReturnStatus.NOT_FOUND),
+                Map.entry(4l, LoanReturnStatus.RETURNED));
+        Mockito.verify(repository).markReturned(List.of(1l));
+        Mockito.verify(repository).markReturned(List.of(4l));
+        Mockito.verify(repository, Mockito.never()).save(Mockito.any(Loan.class));
+        assertThat(loanedBooks.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve manter no bitmap o livro que ja tem outro emprestimo ativo depois da devolucao")
+    public void keepBookLoanedByAnotherLoan() {
+        Mockito.when(repository.streamLoanedBookIds()).thenReturn(Stream.of(10l));
+        loanedBooks.load();
+        Mockito.when(repository.findReturnStates(List.of(1l))).thenReturn(List.of(state(1l, 10l, false)));
+        // devolvido e emprestado de novo por outras requisicoes entre a consulta e o UPDATE
+        Mockito.when(repository.findLoanedBookIds(List.of(10l))).thenReturn(List.of(10l));
+
+        LoanReturnStatus status = service.returnLoan(1l);
+
+        assertThat(status).isEqualTo(LoanReturnStatus.RETURNED);
+        assertThat(loanedBooks.mightBeLoaned(10l)).isTrue();
+        assertThat(loanedBooks.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve informar emprestimo inexistente ao devolver")
+    public void returnInexistentLoan() {
+        Mockito.when(repository.findReturnStates(List.of(1l))).thenReturn(List.of());
+
+        LoanReturnStatus status = service.returnLoan(1l);
+
+        assertThat(status).isEqualTo(LoanReturnStatus.NOT_FOUND);
+        Mockito.verify(repository, Mockito.never()).markReturned(Mockito.anyCollection());
+    }
+
+    private LoanReturnState state(Long id, Long bookId, boolean returned) {
+        return new LoanReturnState() {
+            public Long getId() { return id; }
+            public Long getBookId() { return bookId; }
+            public Boolean getReturned() { return returned; }
+        };
+    }
+
+    public Loan makeLoan() {
+        Book book = Book.builder().id(1l).isbn("123").build();
+        return Loan.builder().customer("Fulano").book(book).loanDate(LocalDate.now()).returned(false).build();
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.springtdd.tddspringlbrary.api.resource.service.cache;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookIsbnCacheTest {
+
+    BookIsbnCache cache = new BookIsbnCache(100, Duration.ofMinutes(1));
+
+    @Test
+    @DisplayName("Deve invalidar a entrada do isbn antigo quando o livro e removido pelo id")
+    public void evictByIdAfterIsbnChange() {
+        AtomicInteger loads = new AtomicInteger();
+        Book book = Book.builder().id(1l).isbn("123").title("titulo").author("autor").build();
+
+        cache.get("123", isbn -> {
+            loads.incrementAndGet();
+            return Optional.of(book);
+        });
+        cache.get("123", isbn -> {
+            loads.incrementAndGet();
+            return Optional.of(book);
+        });
+        cache.evict(Book.builder().id(1l).isbn("456").build());
+        Optional<Book> reloaded = cache.get("123", isbn -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(reloaded).isEmpty();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Nao deve manter em cache o livro carregado durante a troca do isbn")
+    public void evictDuringLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        Book book = Book.builder().id(1l).isbn("123").title("titulo").author("autor").build();
+
+        cache.get("123", isbn -> {
+            loads.incrementAndGet();
+            // o isbn muda para 456 e o evict chega antes da carga terminar
+            CompletableFuture.runAsync(() -> cache.evict(Book.builder().id(1l).isbn("456").build())).join();
+            return Optional.of(book);
+        });
+        Optional<Book> reloaded = cache.get("123", isbn -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(reloaded).isEmpty();
+    }
+
+}
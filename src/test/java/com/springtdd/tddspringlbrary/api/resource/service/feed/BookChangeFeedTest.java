@@ -0,0 +1,174 @@
+package com.springtdd.tddspringlbrary.api.resource.service.feed;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.dto.BookChangeDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookChangeFeedTest {
+
+    BookChangeFeed feed;
+
+    @BeforeEach
+    public void setUp() {
+        feed = new BookChangeFeed(new SimpleMeterRegistry(), 8, 4, Duration.ofMinutes(1), Duration.ofMillis(200), 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        feed.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve entregar as alteracoes em ordem e retomar pelo Last-Event-ID")
+    public void deliverAndResume() throws Exception {
+        RecordingSink first = new RecordingSink(3);
+        feed.subscribe(first, null);
+
+        feed.bookSaved(Book.builder().id(1l).title("titulo").author("autor").isbn("123").build());
+        feed.bookUpdated(Book.builder().id(1l).title("novo titulo").author("autor").isbn("123").build());
+        feed.bookDeleted(1l);
+
+        assertThat(first.await()).isTrue();
+        assertThat(first.changes).extracting(BookChangeDTO::getType).containsExactly(
+                BookChangeDTO.Type.CREATED, BookChangeDTO.Type.UPDATED, BookChangeDTO.Type.DELETED);
+        assertThat(first.changes).extracting(BookChangeDTO::getSequence).containsExactly(1l, 2l, 3l);
+
+        RecordingSink resumed = new RecordingSink(2);
+        feed.subscribe(resumed, first.eventIds.get(0));
+
+        assertThat(resumed.await()).isTrue();
+        assertThat(resumed.changes).extracting(BookChangeDTO::getSequence).containsExactly(2l, 3l);
+    }
+
+    @Test
+    @DisplayName("Deve enviar reset quando o Last-Event-ID nao e desta execucao ou saiu do historico")
+    public void resetWhenHistoryDoesNotCover() throws Exception {
+        for (long id = 1; id <= 10; id++)
+            feed.bookDeleted(id);
+
+        RecordingSink foreign = new RecordingSink(1);
+        feed.subscribe(foreign, "outra.5");
+
+        assertThat(foreign.await()).isTrue();
+        assertThat(foreign.resets).containsExactly(10l);
+        assertThat(foreign.changes).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve desconectar assinantes travados no envio sem atrasar os demais")
+    public void evictStalledConsumers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<RecordingSink> stalled = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            RecordingSink sink = new RecordingSink(1) {
+                @Override
+                public void send(String eventId, BookChangeDTO change) throws IOException {
+                    super.send(eventId, change);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                }
+            };
+            feed.subscribe(sink, null);
+            stalled.add(sink);
+        }
+        RecordingSink fast = new RecordingSink(10);
+        feed.subscribe(fast, null);
+
+        // o rapido consome cada evento antes do proximo; os travados ficam presos no primeiro envio
+        for (long id = 1; id <= 10; id++) {
+            feed.bookDeleted(id);
+            fast.awaitChanges((int) id);
+        }
+
+        assertThat(fast.changes).extracting(BookChangeDTO::getSequence)
+                .containsExactly(1l, 2l, 3l, 4l, 5l, 6l, 7l, 8l, 9l, 10l);
+        for (RecordingSink sink : stalled)
+            assertThat(sink.closed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(feed.subscriberCount()).isEqualTo(1);
+        assertThat(release.getCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve entregar para muitos assinantes sem uma thread por conexao")
+    public void boundedDispatchThreads() throws Exception {
+        List<RecordingSink> sinks = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            RecordingSink sink = new RecordingSink(3);
+            feed.subscribe(sink, null);
+            sinks.add(sink);
+        }
+
+        for (long id = 1; id <= 3; id++)
+            feed.bookDeleted(id);
+
+        for (RecordingSink sink : sinks)
+            assertThat(sink.await()).isTrue();
+        assertThat(feed.dispatchThreads()).isLessThanOrEqualTo(2);
+    }
+
+    static class RecordingSink implements BookChangeSink {
+
+        final CountDownLatch received;
+        final CountDownLatch closed = new CountDownLatch(1);
+        final List<BookChangeDTO> changes = new CopyOnWriteArrayList<>();
+        final List<String> eventIds = new CopyOnWriteArrayList<>();
+        final List<Long> resets = new CopyOnWriteArrayList<>();
+
+        RecordingSink(int expected) {
+            this.received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void send(String eventId, BookChangeDTO change) throws IOException {
+            eventIds.add(eventId);
+            changes.add(change);
+            received.countDown();
+        }
+
+        @Override
+        public void reset(String eventId, long sequence) {
+            eventIds.add(eventId);
+            resets.add(sequence);
+            received.countDown();
+        }
+
+        @Override
+        public void heartbeat() {
+        }
+
+        @Override
+        public void close() {
+            closed.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return received.await(5, TimeUnit.SECONDS);
+        }
+
+        void awaitChanges(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (changes.size() < count && System.nanoTime() < deadline)
+                Thread.sleep(1);
+        }
+
+    }
+
+}
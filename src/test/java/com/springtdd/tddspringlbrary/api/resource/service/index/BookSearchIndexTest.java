@@ -0,0 +1,61 @@
+package com.springtdd.tddspringlbrary.api.resource.service.index;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.BookRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BookSearchIndexTest {
+
+    BookSearchIndex index;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        index = new BookSearchIndex(Mockito.mock(BookRepository.class), "");
+        index.index(Book.builder().id(1l).title("O Senhor dos Aneis").author("Tolkien").isbn("1").build());
+        index.index(Book.builder().id(2l).title("O Hobbit").author("Tolkien").isbn("2").build());
+        index.index(Book.builder().id(3l).title("Tolkien: uma biografia").author("Carpenter").isbn("3").build());
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    @DisplayName("Deve priorizar livros cujo titulo contem o termo")
+    public void rankTitleAboveAuthor() {
+        List<Book> books = index.search("tolkien", 10);
+
+        assertThat(books).extracting(Book::getId).hasSize(3);
+        assertThat(books.get(0).getId()).isEqualTo(3l);
+        assertThat(books.get(0).getIsbn()).isEqualTo("3");
+    }
+
+    @Test
+    @DisplayName("Deve casar o ultimo termo por prefixo")
+    public void matchLastTermByPrefix() {
+        List<Book> books = index.search("Tolkien hob", 10);
+
+        assertThat(books).extracting(Book::getId).containsExactly(2l);
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizacoes e remocoes")
+    public void reflectUpdatesAndRemovals() {
+        index.index(Book.builder().id(2l).title("The Hobbit").author("J. R. R. Tolkien").isbn("2").build());
+        index.remove(1l);
+
+        assertThat(index.search("senhor", 10)).isEmpty();
+        assertThat(index.search("the hobbit", 10)).extracting(Book::getTitle).containsExactly("The Hobbit");
+    }
+
+}
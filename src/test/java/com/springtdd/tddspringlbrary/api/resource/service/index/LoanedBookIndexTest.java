@@ -0,0 +1,71 @@
+package com.springtdd.tddspringlbrary.api.resource.service.index;
+
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoanedBookIndexTest {
+
+    LoanRepository repository;
+
+    LoanedBookIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        repository = Mockito.mock(LoanRepository.class);
+        index = new LoanedBookIndex(repository);
+    }
+
+    @Test
+    @DisplayName("Deve consultar o banco enquanto o bitmap nao foi carregado")
+    public void queryDatabaseBeforeLoad() {
+        Mockito.when(repository.findLoanedBookIds(List.of(1l, 2l))).thenReturn(List.of(2l));
+
+        assertThat(index.mightBeLoaned(1l)).isTrue();
+        assertThat(index.loanedAmong(List.of(1l, 2l))).containsExactly(2l);
+    }
+
+    @Test
+    @DisplayName("Deve responder pelo bitmap depois de carregado, acompanhando emprestimos e devolucoes")
+    public void answerFromBitmapAfterLoad() {
+        Mockito.when(repository.streamLoanedBookIds())
+                .thenReturn(LongStream.rangeClosed(1, 100_000).filter(id -> id % 2 == 0).boxed());
+
+        index.load();
+        index.add(3l);
+        index.remove(List.of(4l));
+
+        assertThat(index.size()).isEqualTo(50_000);
+        assertThat(index.mightBeLoaned(2l)).isTrue();
+        assertThat(index.mightBeLoaned(4l)).isFalse();
+        assertThat(index.loanedAmong(List.of(1l, 2l, 3l, 4l, 5_000_000_000l))).containsExactlyInAnyOrder(2l, 3l);
+        Mockito.verify(repository, Mockito.never()).findLoanedBookIds(Mockito.anyCollection());
+    }
+
+    @Test
+    @DisplayName("Deve manter emprestimos e devolucoes feitos enquanto o bitmap e carregado")
+    public void mergeUpdatesDuringLoad() {
+        // a devolucao do livro 2 e o emprestimo do 9 chegam depois que a leitura ja passou por eles
+        Mockito.when(repository.streamLoanedBookIds()).thenReturn(Stream.of(1l, 2l, 3l)
+                .peek(id -> {
+                    if (id == 3l) {
+                        index.remove(List.of(2l));
+                        index.add(9l);
+                    }
+                }));
+
+        index.load();
+
+        assertThat(index.loanedAmong(List.of(1l, 2l, 3l, 9l))).containsExactlyInAnyOrder(1l, 3l, 9l);
+        assertThat(index.size()).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.springtdd.tddspringlbrary.api.resource.service.job;
+
+import com.springtdd.tddspringlbrary.api.entity.JobCheckpoint;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.JobCheckpointRepository;
+import com.springtdd.tddspringlbrary.api.resource.model.repository.LoanRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class OverdueLoanSweeperTest {
+
+    static final LocalDate TODAY = LocalDate.of(2021, 3, 15);
+    static final LocalDate DUE_BEFORE = TODAY.minusDays(14);
+
+    OverdueLoanSweeper sweeper;
+
+    SimpleMeterRegistry registry;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @MockBean
+    JobCheckpointRepository checkpoints;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sweeper = new OverdueLoanSweeper(loanRepository, checkpoints, registry, 14, 2, 2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        sweeper.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve marcar os atrasados em blocos por keyset e zerar o checkpoint ao terminar")
+    public void sweepInChunks() {
+        Mockito.when(checkpoints.findById(OverdueLoanSweeper.JOB)).thenReturn(Optional.empty());
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(0l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(1l, 2l));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(2l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(5l, 7l));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(7l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(9l));
+        Mockito.when(loanRepository.markOverdue(Mockito.anyCollection())).thenAnswer(invocation ->
+                invocation.<java.util.Collection<Long>>getArgument(0).size());
+
+        long marked = sweeper.sweep(TODAY);
+
+        assertThat(marked).isEqualTo(5);
+        Mockito.verify(loanRepository, Mockito.times(3)).markOverdue(Mockito.anyCollection());
+        ArgumentCaptor<JobCheckpoint> saved = ArgumentCaptor.forClass(JobCheckpoint.class);
+        Mockito.verify(checkpoints, Mockito.times(2)).save(saved.capture());
+        assertThat(saved.getValue().getLastId()).isZero();
+        assertThat(registry.get("library.loan.overdue.scanned").counter().count()).isEqualTo(5);
+        assertThat(registry.get("library.loan.overdue.marked").counter().count()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("Deve retomar a varredura a partir do checkpoint gravado")
+    public void resumeFromCheckpoint() {
+        JobCheckpoint checkpoint = JobCheckpoint.builder().name(OverdueLoanSweeper.JOB).lastId(40l).build();
+        Mockito.when(checkpoints.findById(OverdueLoanSweeper.JOB)).thenReturn(Optional.of(checkpoint));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(40l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.singletonList(41l));
+        Mockito.when(loanRepository.markOverdue(Collections.singletonList(41l))).thenReturn(1);
+
+        long marked = sweeper.sweep(TODAY);
+
+        assertThat(marked).isEqualTo(1);
+        Mockito.verify(loanRepository, Mockito.never())
+                .findUnreturnedIdsAfter(Mockito.eq(0l), Mockito.any(), Mockito.any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Deve manter o checkpoint da ultima janela concluida quando um bloco falha")
+    public void keepCheckpointWhenChunkFails() {
+        Mockito.when(checkpoints.findById(OverdueLoanSweeper.JOB)).thenReturn(Optional.empty());
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(0l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(1l, 2l));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(2l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(3l, 4l));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(4l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Arrays.asList(5l, 6l));
+        Mockito.when(loanRepository.findUnreturnedIdsAfter(Mockito.eq(6l), Mockito.eq(DUE_BEFORE), Mockito.any(Pageable.class)))
+                .thenReturn(Collections.emptyList());
+        Mockito.when(loanRepository.markOverdue(Arrays.asList(1l, 2l))).thenReturn(2);
+        Mockito.when(loanRepository.markOverdue(Arrays.asList(3l, 4l))).thenReturn(2);
+        Mockito.when(loanRepository.markOverdue(Arrays.asList(5l, 6l))).thenThrow(new IllegalStateException("lock timeout"));
+
+        Throwable exception = catchThrowable(() -> sweeper.sweep(TODAY));
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class);
+        ArgumentCaptor<JobCheckpoint> saved = ArgumentCaptor.forClass(JobCheckpoint.class);
+        Mockito.verify(checkpoints, Mockito.times(1)).save(saved.capture());
+        assertThat(saved.getValue().getLastId()).isEqualTo(4l);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.springtdd.tddspringlbrary.api.resource.service.journal;
+
+import com.springtdd.tddspringlbrary.api.entity.Book;
+import com.springtdd.tddspringlbrary.api.entity.Loan;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Deve reproduzir livros e emprestimos na ordem em que foram gravados")
+    public void replayRecords() {
+        ChangeJournal journal = open(DataSize.ofKilobytes(64));
+        Book book = Book.builder().id(1l).title("titulo").author("autor").isbn("123").version(0l).build();
+        journal.bookSaved(book);
+        journal.bookUpdated(book);
+        journal.loanSaved(Loan.builder().id(7l).book(book).customer("Fulano")
+                .loanDate(LocalDate.of(2020, 12, 1)).returned(false).build());
+        journal.bookDeleted(1l);
+
+        List<JournalRecord> records = new ArrayList<>();
+        long next = journal.reader().replay(2, records::add);
+        journal.close();
+
+        assertThat(next).isEqualTo(5);
+        assertThat(records).extracting(JournalRecord::getType).containsExactly(
+                JournalRecord.Type.BOOK_UPDATED, JournalRecord.Type.LOAN_SAVED, JournalRecord.Type.BOOK_DELETED);
+        assertThat(records.get(0).getTitle()).isEqualTo("titulo");
+        assertThat(records.get(0).getVersion()).isEqualTo(0l);
+        assertThat(records.get(1).getEntityId()).isEqualTo(7l);
+        assertThat(records.get(1).getBookId()).isEqualTo(1l);
+        assertThat(records.get(1).getIsbn()).isEqualTo("123");
+        assertThat(records.get(1).getLoanDate()).isEqualTo(LocalDate.of(2020, 12, 1));
+        assertThat(records.get(1).getReturned()).isFalse();
+        assertThat(records.get(2).getEntityId()).isEqualTo(1l);
+        assertThat(records.get(2).getTitle()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve encerrar segmentos cheios e continuar a sequencia ao reabrir")
+    public void rollSegmentsAndReopen() {
+        ChangeJournal journal = open(DataSize.ofBytes(256));
+        for (long id = 1; id <= 20; id++)
+            journal.bookDeleted(id);
+        journal.close();
+
+        ChangeJournal reopened = open(DataSize.ofBytes(256));
+        long sequence = reopened.bookDeleted(21l);
+        List<JournalRecord> records = new ArrayList<>();
+        reopened.reader().replay(0, records::add);
+        reopened.close();
+
+        assertThat(ChangeJournalReader.segments(directory).size()).isGreaterThan(1);
+        assertThat(sequence).isEqualTo(21);
+        assertThat(records).extracting(JournalRecord::getEntityId)
+                .containsExactly(1l, 2l, 3l, 4l, 5l, 6l, 7l, 8l, 9l, 10l, 11l, 12l, 13l, 14l, 15l, 16l, 17l, 18l, 19l, 20l, 21l);
+    }
+
+    @Test
+    @DisplayName("Deve descartar um registro incompleto no fim do segmento")
+    public void discardTornRecord() throws IOException {
+        ChangeJournal journal = open(DataSize.ofKilobytes(64));
+        journal.bookDeleted(1l);
+        journal.bookDeleted(2l);
+        journal.close();
+        Path segment = ChangeJournalReader.segments(directory).get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // corrompe o corpo do segundo registro, como uma escrita interrompida
+            file.seek(JournalCodec.HEADER_SIZE + 8 + JournalCodec.HEADER_SIZE);
+            file.writeLong(99l);
+        }
+
+        ChangeJournal reopened = open(DataSize.ofKilobytes(64));
+        long sequence = reopened.bookDeleted(3l);
+        List<JournalRecord> records = new ArrayList<>();
+        reopened.reader().replay(0, records::add);
+        reopened.close();
+
+        assertThat(sequence).isEqualTo(2);
+        assertThat(records).extracting(JournalRecord::getEntityId).containsExactly(1l, 3l);
+    }
+
+    @Test
+    @DisplayName("Nao deve gravar nada com o diario desligado")
+    public void disabledJournal() {
+        ChangeJournal journal = new ChangeJournal("", DataSize.ofKilobytes(64), Duration.ZERO);
+
+        assertThat(journal.isEnabled()).isFalse();
+        assertThat(journal.bookDeleted(1l)).isEqualTo(-1);
+    }
+
+    private ChangeJournal open(DataSize segmentSize) {
+        return new ChangeJournal(directory.toString(), segmentSize, Duration.ofMillis(10));
+    }
+
+}
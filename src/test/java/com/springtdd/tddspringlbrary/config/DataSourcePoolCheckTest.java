@@ -0,0 +1,62 @@
+package com.springtdd.tddspringlbrary.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class DataSourcePoolCheckTest {
+
+    HikariDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:pool-check;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(4);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    @DisplayName("Deve validar o banco e publicar a saturacao do pool")
+    public void reportPoolSaturation() throws Exception {
+        DataSourcePoolCheck check = new DataSourcePoolCheck(dataSource, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        check.bindTo(registry);
+
+        check.check();
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertThat(registry.get("library.db.pool.saturation").gauge().value()).isEqualTo(0.5);
+        }
+        assertThat(registry.get("library.db.pool.saturation").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve impedir a subida quando o banco nao responde")
+    public void failWhenDatabaseIsUnreachable() {
+        dataSource.setJdbcUrl("jdbc:h2:tcp://localhost:1/unreachable");
+        dataSource.setConnectionTimeout(250);
+        dataSource.setInitializationFailTimeout(-1);
+
+        Throwable exception = catchThrowable(() -> new DataSourcePoolCheck(dataSource, 1).check());
+
+        assertThat(exception).isInstanceOf(IllegalStateException.class).hasMessage("Database is not reachable");
+    }
+
+}